@@ -0,0 +1,69 @@
+package fr.neatmonster.labs;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.neatmonster.labs.neat.Activation;
+import fr.neatmonster.labs.neat.Pool;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ActivationBenchmark {
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Fitness {
+        public double fitness;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            fitness = 0.0;
+        }
+    }
+
+    @Param({ "EXACT", "TABLE", "RATIONAL" })
+    public Activation activation;
+
+    @Param({ "20" })
+    public int generations;
+
+    @Param({ "10000" })
+    public int ticks;
+
+    private long seed;
+
+    @Benchmark
+    public Pool evolve(final Fitness fitness) {
+        final Pool pool = new Pool(Pool.POPULATION, new Random(seed));
+        pool.activation = activation;
+        final Simulation simulation = new Simulation(pool, new Random(seed));
+        ++seed;
+        simulation.setBudget(ticks);
+        pool.initializePool();
+        simulation.initializeGame();
+        while (pool.generation < generations) {
+            simulation.eval();
+            simulation.update();
+            simulation.learn();
+        }
+        fitness.fitness = pool.maxFitness;
+        return pool;
+    }
+}
@@ -0,0 +1,71 @@
+package fr.neatmonster.labs;
+
+import static fr.neatmonster.labs.Simulation.FLOOR_OFFSET;
+import static fr.neatmonster.labs.Simulation.HEIGHT;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.neatmonster.labs.neat.Fixtures;
+import fr.neatmonster.labs.neat.Genome;
+import fr.neatmonster.labs.neat.Pool;
+import fr.neatmonster.labs.neat.Species;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class InferenceBenchmark {
+    @Param({ "5000", "100000" })
+    public int birds;
+
+    @Param({ "10", "1000" })
+    public int topologies;
+
+    @Param({ "false", "true" })
+    public boolean batched;
+
+    private Simulation simulation;
+
+    @Setup
+    public void setup() {
+        final Pool pool = new Pool(birds, new Random(42L));
+        final Genome[] parents = new Genome[topologies];
+        for (int i = 0; i < topologies; ++i)
+            parents[i] = Fixtures.evolve(pool, 20);
+        final Species species = new Species(pool);
+        for (int i = 0; i < birds; ++i) {
+            final Genome genome = parents[i % topologies].clone();
+            genome.mutatePoint();
+            species.genomes.add(genome);
+        }
+        pool.species.add(species);
+
+        simulation = new Simulation(pool, new Random(42L));
+        simulation.setBatched(batched);
+        simulation.initializeGame();
+        for (final Simulation.Bird bird : simulation.birds)
+            bird.height = FLOOR_OFFSET + 50
+                    + simulation.rnd.nextInt(HEIGHT - FLOOR_OFFSET - 100);
+    }
+
+    @Benchmark
+    public Simulation eval() {
+        simulation.eval();
+        return simulation;
+    }
+}
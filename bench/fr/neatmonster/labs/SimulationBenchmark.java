@@ -0,0 +1,118 @@
+package fr.neatmonster.labs;
+
+import static fr.neatmonster.labs.Simulation.FLOOR_OFFSET;
+import static fr.neatmonster.labs.Simulation.HEIGHT;
+import static fr.neatmonster.labs.Simulation.TUBE_APERTURE;
+import static fr.neatmonster.labs.Simulation.TUBE_WIDTH;
+import static fr.neatmonster.labs.Simulation.WIDTH;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.neatmonster.labs.Simulation.Bird;
+import fr.neatmonster.labs.Simulation.Tube;
+import fr.neatmonster.labs.neat.Fixtures;
+import fr.neatmonster.labs.neat.Pool;
+import fr.neatmonster.labs.neat.Species;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+    @Param({ "50", "500", "5000" })
+    public int birds;
+
+    @Param({ "1", "3" })
+    public int tubes;
+
+    @Param({ "false", "true" })
+    public boolean flocked;
+
+    private Simulation simulation;
+    private Tube[]     course;
+    private double[]   positions;
+    private double[]   heights;
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        simulation.speed = 75;
+        simulation.ticks = 0;
+        simulation.ticksTubes = 0;
+        simulation.score = 0;
+        simulation.ended = null;
+        simulation.tubes.clear();
+        for (int i = 0; i < course.length; ++i) {
+            course[i].position = positions[i];
+            course[i].passed = false;
+            simulation.tubes.add(course[i]);
+        }
+        for (int i = 0; i < heights.length; ++i) {
+            final Bird bird = simulation.birds.get(i);
+            bird.height = heights[i];
+            bird.velocity = 0.0;
+            bird.angle = 0.0;
+            bird.flap = false;
+            bird.flaps = 0;
+            bird.dead = false;
+            bird.progress = Double.NEGATIVE_INFINITY;
+            bird.stalled = 0;
+            bird.born = 0;
+        }
+        if (simulation.flock != null)
+            simulation.flock.load();
+    }
+
+    @Setup
+    public void setup() {
+        final Pool pool = new Pool(birds, new Random(42L));
+        final Species species = new Species(pool);
+        for (int i = 0; i < birds; ++i)
+            species.genomes.add(Fixtures.evolve(pool, 20));
+        pool.species.add(species);
+
+        simulation = new Simulation(pool, new Random(42L));
+        simulation.setFlocked(flocked);
+        simulation.initializeGame();
+        heights = new double[birds];
+        for (int i = 0; i < birds; ++i)
+            heights[i] = FLOOR_OFFSET + 50 + simulation.rnd.nextInt(HEIGHT
+                    - FLOOR_OFFSET - 100);
+        course = new Tube[tubes];
+        positions = new double[tubes];
+        for (int i = 0; i < tubes; ++i) {
+            course[i] = new Tube(FLOOR_OFFSET + 100 + simulation.rnd.nextInt(
+                    HEIGHT - 200 - TUBE_APERTURE - FLOOR_OFFSET));
+            positions[i] = WIDTH / 3 - TUBE_WIDTH / 2
+                    + i * (WIDTH + TUBE_WIDTH) / tubes % WIDTH;
+        }
+    }
+
+    @Benchmark
+    public Simulation tick() {
+        simulation.eval();
+        simulation.update();
+        return simulation;
+    }
+
+    @Benchmark
+    public Simulation update() {
+        simulation.update();
+        return simulation;
+    }
+}
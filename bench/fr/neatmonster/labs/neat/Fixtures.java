@@ -0,0 +1,17 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+
+public class Fixtures {
+    public static Genome evolve(final Pool pool, final int size) {
+        final Genome genome = new Genome(pool);
+        genome.maxNeuron = INPUTS;
+        while (genome.genes.size() < size)
+            if (pool.rnd.nextDouble() < 0.3)
+                genome.mutateNode();
+            else
+                genome.mutateLink(pool.rnd.nextDouble() < 0.1);
+        genome.mutatePoint();
+        return genome;
+    }
+}
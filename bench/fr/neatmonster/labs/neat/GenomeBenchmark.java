@@ -0,0 +1,85 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GenomeBenchmark {
+    @Param({ "10", "50", "200" })
+    public int genes;
+
+    private Pool      pool;
+    private Genome    genome;
+    private Evaluator assembled;
+    private Genome    other;
+    private Species   species;
+    private double[]  input;
+    private double[]  output;
+
+    @Benchmark
+    public Genome crossover() {
+        return species.crossover(genome, other);
+    }
+
+    @Benchmark
+    public double[] evaluateAssembled() {
+        input[0] = pool.rnd.nextDouble();
+        assembled.evaluate(input, output);
+        return output;
+    }
+
+    @Benchmark
+    public double[] evaluateNetwork() {
+        input[0] = pool.rnd.nextDouble();
+        genome.evaluateNetwork(input, output);
+        return output;
+    }
+
+    @Benchmark
+    public Genome mutate() {
+        final Genome child = genome.clone();
+        child.mutate();
+        return child;
+    }
+
+    @Benchmark
+    public boolean sameSpecies() {
+        return genome.sameSpecies(other);
+    }
+
+    @Setup
+    public void setup() {
+        pool = new Pool(Pool.POPULATION, new Random(42L));
+        genome = Fixtures.evolve(pool, genes);
+        genome.generateNetwork();
+        assembled = new Assembler(pool.activation).assemble(genome);
+        other = genome.clone();
+        other.mutate();
+        other.fitness = 1.0;
+        species = new Species(pool);
+        species.genomes.add(genome);
+        species.genomes.add(other);
+        input = new double[INPUTS];
+        input[INPUTS - 1] = 1.0;
+        output = new double[OUTPUTS];
+    }
+}
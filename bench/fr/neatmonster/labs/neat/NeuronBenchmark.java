@@ -0,0 +1,42 @@
+package fr.neatmonster.labs.neat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NeuronBenchmark {
+    @Param({ "EXACT", "TABLE", "RATIONAL" })
+    public Activation activation;
+
+    private final double[] inputs = new double[1024];
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < inputs.length; ++i)
+            inputs[i] = (i - inputs.length / 2) / 128.0;
+    }
+
+    @Benchmark
+    public double sigmoid() {
+        double sum = 0.0;
+        for (final double input : inputs)
+            sum += Neuron.sigmoid(activation, input);
+        return sum;
+    }
+}
@@ -0,0 +1,48 @@
+package fr.neatmonster.labs.neat;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx5g")
+@State(Scope.Thread)
+public class PoolBenchmark {
+    @Param({ "50", "500", "5000", "50000", "1000000" })
+    public int population;
+
+    private Pool pool;
+
+    @Benchmark
+    public int newGeneration() {
+        pool.newGeneration();
+        return pool.species.size();
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        pool = new Pool(population, new Random(42L));
+        for (int i = 0; i < population; ++i) {
+            final Genome genome = Fixtures.evolve(pool,
+                    5 + pool.rnd.nextInt(40));
+            genome.fitness = pool.rnd.nextInt(1000);
+            pool.maxFitness = Math.max(pool.maxFitness, genome.fitness);
+            pool.addToSpecies(genome);
+        }
+    }
+}
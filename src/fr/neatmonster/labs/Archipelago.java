@@ -0,0 +1,164 @@
+package fr.neatmonster.labs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import fr.neatmonster.labs.neat.Activation;
+import fr.neatmonster.labs.neat.Migration;
+import fr.neatmonster.labs.neat.Pool;
+
+public class Archipelago {
+    public static void main(final String[] args) throws InterruptedException {
+        int islands = Runtime.getRuntime().availableProcessors();
+        int interval = 10;
+        int migrants = 2;
+        int generations = Integer.MAX_VALUE;
+        long nanos = Long.MAX_VALUE;
+        long seed = System.nanoTime();
+        int budget = Integer.MAX_VALUE;
+        double solved = Double.POSITIVE_INFINITY;
+        boolean timeout = false;
+        Activation activation = Activation.EXACT;
+        for (int i = 0; i < args.length; ++i)
+            if (args[i].equals("--islands"))
+                islands = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--interval"))
+                interval = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--migrants"))
+                migrants = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--generations"))
+                generations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--time"))
+                nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(args[++i]));
+            else if (args[i].equals("--seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("--budget"))
+                budget = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--solved"))
+                solved = Double.parseDouble(args[++i]);
+            else if (args[i].equals("--timeout"))
+                timeout = true;
+            else if (args[i].equals("--activation"))
+                activation = Activation.valueOf(args[++i].toUpperCase());
+            else {
+                System.err.println("Usage: Archipelago [--islands K]"
+                        + " [--interval N] [--migrants M] [--generations N]"
+                        + " [--time SECONDS] [--seed SEED]"
+                        + " [--activation EXACT|TABLE|RATIONAL]"
+                        + " [--budget TICKS] [--solved FITNESS] [--timeout]");
+                System.exit(1);
+            }
+
+        final List<Simulation> simulations = new ArrayList<Simulation>();
+        for (int i = 0; i < islands; ++i) {
+            final Pool pool = new Pool(Pool.POPULATION, new Random(seed + i));
+            pool.activation = activation;
+            final Simulation simulation = new Simulation(pool,
+                    new Random(seed + i));
+            simulation.setBudget(budget);
+            simulation.setSolved(solved);
+            simulation.setTimeout(timeout);
+            simulations.add(simulation);
+        }
+        new Archipelago(simulations, interval, migrants).run(generations,
+                nanos);
+    }
+
+    private final List<Simulation> simulations;
+    private final Migration        migration;
+    private final int              interval;
+    private final int              migrants;
+
+    private volatile boolean expired;
+    private volatile boolean stopped;
+
+    public Archipelago(final List<Simulation> simulations, final int interval,
+            final int migrants) {
+        this.simulations = simulations;
+        this.interval = interval;
+        this.migrants = migrants;
+        final List<Pool> pools = new ArrayList<Pool>();
+        for (final Simulation simulation : simulations)
+            pools.add(simulation.pool);
+        migration = new Migration(pools);
+    }
+
+    public void run(final int generations, final long nanos)
+            throws InterruptedException {
+        final long start = System.nanoTime();
+        final long[] ticks = new long[simulations.size()];
+        final CyclicBarrier barrier = new CyclicBarrier(simulations.size(),
+                new Runnable() {
+
+                    @Override
+                    public void run() {
+                        migration.migrate(migrants);
+                        long total = 0L;
+                        for (final long count : ticks)
+                            total += count;
+                        final Pool pool = simulations.get(0).pool;
+                        report(pool.generation + 1, total,
+                                System.nanoTime() - start);
+                        stopped = expired || pool.generation + 1 >= generations
+                                || System.nanoTime() - start >= nanos;
+                    }
+                });
+
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < simulations.size(); ++i) {
+            final int island = i;
+            final Simulation simulation = simulations.get(i);
+            final Thread thread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    final Pool pool = simulation.pool;
+                    pool.initializePool();
+                    simulation.initializeGame();
+                    try {
+                        while (!stopped) {
+                            simulation.eval();
+                            simulation.update();
+                            ++ticks[island];
+                            if (simulation.termination() == null)
+                                continue;
+                            simulation.record();
+                            if (System.nanoTime() - start >= nanos)
+                                expired = true;
+                            if (expired || (pool.generation + 1) % interval == 0
+                                    || pool.generation + 1 >= generations) {
+                                barrier.await();
+                                if (stopped)
+                                    break;
+                            }
+                            pool.newGeneration();
+                            simulation.initializeGame();
+                        }
+                    } catch (final InterruptedException e) {
+                    } catch (final BrokenBarrierException e) {
+                    }
+                }
+            }, "Island-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads)
+            thread.join();
+    }
+
+    private void report(final int generation, final long ticks,
+            final long elapsed) {
+        final double seconds = Math.max(elapsed, 1L) / 1e9;
+        final StringBuilder fitness = new StringBuilder();
+        for (final Simulation simulation : simulations)
+            fitness.append(String.format(" %.1f", simulation.pool.maxFitness));
+        System.out.printf("GENERATION %d  FITNESS%s  %.0f TICKS/S"
+                + "  %.1f GENERATIONS/MIN%n", generation, fitness,
+                ticks / seconds,
+                generation * simulations.size() * 60.0 / seconds);
+    }
+}
@@ -0,0 +1,230 @@
+package fr.neatmonster.labs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.neatmonster.labs.neat.Activation;
+import fr.neatmonster.labs.neat.Genome;
+import fr.neatmonster.labs.neat.Pool;
+import fr.neatmonster.labs.neat.Species;
+
+public class Coordinator {
+    private class Connection implements Runnable {
+        private final Socket           socket;
+        private final DataInputStream  in;
+        private final DataOutputStream out;
+
+        private Connection(final Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(patience);
+            in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final List<Genome> chunk = queue.take();
+                    try {
+                        out.writeLong(seed);
+                        Protocol.writeGenomes(out, chunk);
+                        Protocol.readFitness(in, chunk);
+                    } catch (final IOException e) {
+                        queue.add(chunk);
+                        throw e;
+                    }
+                    remaining.countDown();
+                }
+            } catch (final IOException e) {
+                System.err.println("Lost worker " + socket
+                        .getRemoteSocketAddress() + ": " + e.getMessage());
+            } catch (final InterruptedException e) {
+            } finally {
+                workers.decrementAndGet();
+                try {
+                    socket.close();
+                } catch (final IOException e) {
+                }
+            }
+        }
+    }
+
+    public static void main(final String[] args) throws IOException,
+            InterruptedException {
+        int port = Protocol.DEFAULT_PORT;
+        int chunk = 8;
+        int wait = 0;
+        int generations = Integer.MAX_VALUE;
+        long nanos = Long.MAX_VALUE;
+        Long seed = null;
+        Activation activation = Activation.EXACT;
+        int budget = Integer.MAX_VALUE;
+        double solved = Double.POSITIVE_INFINITY;
+        boolean timeout = false;
+        int patience = 60;
+        for (int i = 0; i < args.length; ++i)
+            if (args[i].equals("--port"))
+                port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--chunk"))
+                chunk = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--workers"))
+                wait = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--generations"))
+                generations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--time"))
+                nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(args[++i]));
+            else if (args[i].equals("--seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("--activation"))
+                activation = Activation.valueOf(args[++i].toUpperCase());
+            else if (args[i].equals("--budget"))
+                budget = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--solved"))
+                solved = Double.parseDouble(args[++i]);
+            else if (args[i].equals("--timeout"))
+                timeout = true;
+            else if (args[i].equals("--patience"))
+                patience = Integer.parseInt(args[++i]);
+            else {
+                System.err.println("Usage: Coordinator [--port PORT]"
+                        + " [--chunk N] [--workers N] [--generations N]"
+                        + " [--time SECONDS] [--seed SEED]"
+                        + " [--activation EXACT|TABLE|RATIONAL]"
+                        + " [--budget TICKS] [--solved FITNESS] [--timeout]"
+                        + " [--patience SECONDS]");
+                System.exit(1);
+            }
+        if (patience < 0) {
+            System.err.println("--patience must not be negative");
+            System.exit(1);
+        }
+
+        final Pool pool = seed == null ? new Pool()
+                : new Pool(Pool.POPULATION, new Random(seed));
+        pool.activation = activation;
+        final Pool evaluator = new Pool();
+        evaluator.activation = activation;
+        final Simulation simulation = new Simulation(evaluator);
+        simulation.setBudget(budget);
+        simulation.setSolved(solved);
+        simulation.setTimeout(timeout);
+        final Coordinator coordinator = new Coordinator(pool, chunk,
+                simulation);
+        coordinator.setPatience((int) TimeUnit.SECONDS.toMillis(patience));
+        coordinator.listen(new ServerSocket(port));
+        while (coordinator.workers() < wait)
+            Thread.sleep(100L);
+        coordinator.run(generations, nanos);
+    }
+
+    private final Pool   pool;
+    private final Worker local;
+    private final int    chunk;
+
+    private final BlockingQueue<List<Genome>> queue   = new LinkedBlockingQueue<List<Genome>>();
+    private final AtomicInteger               workers = new AtomicInteger();
+
+    private volatile long  seed;
+    private CountDownLatch remaining;
+    private volatile int   patience = 60000;
+
+    public Coordinator(final Pool pool, final int chunk,
+            final Simulation simulation) {
+        this.pool = pool;
+        this.chunk = chunk;
+        local = new Worker(simulation);
+    }
+
+    public void evaluate(final long seed, final List<Genome> genomes)
+            throws InterruptedException {
+        this.seed = seed;
+        remaining = new CountDownLatch((genomes.size() + chunk - 1) / chunk);
+        for (int i = 0; i < genomes.size(); i += chunk)
+            queue.add(genomes.subList(i, Math.min(i + chunk, genomes.size())));
+        while (remaining.getCount() > 0) {
+            if (workers() == 0) {
+                final List<Genome> batch = queue.poll();
+                if (batch != null) {
+                    local.evaluate(seed, batch);
+                    remaining.countDown();
+                    continue;
+                }
+            }
+            remaining.await(100L, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void listen(final ServerSocket server) {
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                while (!server.isClosed())
+                    try {
+                        final Socket socket = server.accept();
+                        final Connection connection = new Connection(socket);
+                        workers.incrementAndGet();
+                        final Thread thread = new Thread(connection,
+                                "Worker-" + socket.getRemoteSocketAddress());
+                        thread.setDaemon(true);
+                        thread.start();
+                    } catch (final IOException e) {
+                        if (!server.isClosed())
+                            e.printStackTrace();
+                    }
+            }
+        }, "Coordinator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void run(final int generations, final long nanos)
+            throws InterruptedException {
+        pool.initializePool();
+
+        final long start = System.nanoTime();
+        while (pool.generation < generations
+                && System.nanoTime() - start < nanos) {
+            final List<Genome> genomes = new ArrayList<Genome>();
+            for (final Species species : pool.species)
+                genomes.addAll(species.genomes);
+            evaluate(pool.rnd.nextLong(), genomes);
+            for (final Genome genome : genomes)
+                if (genome.fitness > pool.maxFitness)
+                    pool.maxFitness = genome.fitness;
+            pool.newGeneration();
+
+            final double seconds = Math.max(System.nanoTime() - start, 1L)
+                    / 1e9;
+            System.out.printf("GENERATION %d  FITNESS %.1f  SPECIES %d"
+                    + "  WORKERS %d  %.1f GENERATIONS/MIN%n", pool.generation,
+                    pool.maxFitness, pool.species.size(), workers(),
+                    pool.generation * 60.0 / seconds);
+        }
+    }
+
+    public void setPatience(final int patience) {
+        this.patience = patience;
+    }
+
+    public int workers() {
+        return workers.get();
+    }
+}
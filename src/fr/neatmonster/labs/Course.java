@@ -0,0 +1,34 @@
+package fr.neatmonster.labs;
+
+import static fr.neatmonster.labs.Simulation.FLOOR_OFFSET;
+import static fr.neatmonster.labs.Simulation.HEIGHT;
+import static fr.neatmonster.labs.Simulation.TUBE_APERTURE;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+class Course {
+    final long              seed;
+    final Map<Long, Double> fitnesses = new HashMap<Long, Double>();
+
+    private final Random rnd;
+    private int[]        heights = new int[64];
+    private int          count   = 0;
+
+    Course(final long seed) {
+        this.seed = seed;
+        rnd = new Random(seed);
+    }
+
+    int height(final int tube) {
+        while (count <= tube) {
+            if (count == heights.length)
+                heights = Arrays.copyOf(heights, count * 2);
+            heights[count++] = FLOOR_OFFSET + 100
+                    + rnd.nextInt(HEIGHT - 200 - TUBE_APERTURE - FLOOR_OFFSET);
+        }
+        return heights[tube];
+    }
+}
@@ -0,0 +1,133 @@
+package fr.neatmonster.labs;
+
+import static fr.neatmonster.labs.Simulation.BIRD_HEIGHT;
+import static fr.neatmonster.labs.Simulation.FLOOR_OFFSET;
+import static fr.neatmonster.labs.Simulation.HEIGHT;
+
+import java.util.List;
+
+import fr.neatmonster.labs.Simulation.Bird;
+import fr.neatmonster.labs.Simulation.Tube;
+
+class Flock {
+    private final List<Bird> birds;
+
+    final int[]     indices;
+    final double[]  heights;
+    final double[]  velocities;
+    final double[]  angles;
+    final boolean[] flapping;
+    final int[]     flaps;
+    final double[]  progress;
+    final int[]     stalled;
+    final boolean[] dead;
+    int             size;
+
+    private final boolean[] dying;
+
+    Flock(final List<Bird> birds) {
+        this.birds = birds;
+        final int capacity = birds.size();
+        indices = new int[capacity];
+        heights = new double[capacity];
+        velocities = new double[capacity];
+        angles = new double[capacity];
+        flapping = new boolean[capacity];
+        flaps = new int[capacity];
+        progress = new double[capacity];
+        stalled = new int[capacity];
+        dead = new boolean[capacity];
+        dying = new boolean[capacity];
+        load();
+    }
+
+    void compact() {
+        int live = 0;
+        for (int lane = 0; lane < size; ++lane) {
+            if (dying[lane]) {
+                final int i = indices[lane];
+                final Bird bird = birds.get(i);
+                bird.height = heights[lane];
+                bird.velocity = velocities[lane];
+                bird.angle = angles[lane];
+                bird.flap = flapping[lane];
+                bird.flaps = flaps[lane];
+                bird.progress = progress[lane];
+                bird.stalled = stalled[lane];
+                bird.dead = true;
+                dead[i] = true;
+                dying[lane] = false;
+                continue;
+            }
+            if (live != lane) {
+                indices[live] = indices[lane];
+                heights[live] = heights[lane];
+                velocities[live] = velocities[lane];
+                angles[live] = angles[lane];
+                flapping[live] = flapping[lane];
+                flaps[live] = flaps[lane];
+                progress[live] = progress[lane];
+                stalled[live] = stalled[lane];
+            }
+            ++live;
+        }
+        size = live;
+    }
+
+    void kill(final int lane) {
+        dying[lane] = true;
+    }
+
+    void load() {
+        size = 0;
+        for (int i = 0; i < birds.size(); ++i) {
+            final Bird bird = birds.get(i);
+            dead[i] = bird.dead;
+            if (!bird.dead)
+                spawn(i);
+        }
+    }
+
+    void spawn(final int i) {
+        final Bird bird = birds.get(i);
+        dead[i] = false;
+        indices[size] = i;
+        heights[size] = bird.height;
+        velocities[size] = bird.velocity;
+        angles[size] = bird.angle;
+        flapping[size] = bird.flap;
+        flaps[size] = bird.flaps;
+        progress[size] = bird.progress;
+        stalled[size] = bird.stalled;
+        ++size;
+    }
+
+    void move(final int from, final int to, final List<Tube> tubes) {
+        for (int lane = from; lane < to; ++lane) {
+            final boolean flap = flapping[lane];
+            velocities[lane] = flap ? 10.0 : velocities[lane];
+            flaps[lane] += flap ? 1 : 0;
+            flapping[lane] = false;
+        }
+
+        for (int lane = from; lane < to; ++lane) {
+            heights[lane] += velocities[lane];
+            velocities[lane] -= 0.98;
+        }
+
+        for (int lane = from; lane < to; ++lane)
+            angles[lane] = Math.max(-90.0,
+                    Math.min(90.0, 3.0 * velocities[lane]));
+
+        for (int lane = from; lane < to; ++lane) {
+            if (heights[lane] > HEIGHT) {
+                heights[lane] = HEIGHT;
+                velocities[lane] = 0.0;
+                angles[lane] = -angles[lane];
+            }
+
+            dying[lane] = heights[lane] < FLOOR_OFFSET + BIRD_HEIGHT / 2
+                    || Hitbox.collides(angles[lane], heights[lane], tubes);
+        }
+    }
+}
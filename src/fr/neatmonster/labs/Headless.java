@@ -0,0 +1,226 @@
+package fr.neatmonster.labs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import fr.neatmonster.labs.neat.Activation;
+import fr.neatmonster.labs.neat.Checkpoint;
+import fr.neatmonster.labs.neat.Pool;
+
+public class Headless {
+    public static void main(final String[] args) throws IOException {
+        int generations = Integer.MAX_VALUE;
+        long nanos = Long.MAX_VALUE;
+        int threads = 1;
+        Long seed = null;
+        Path checkpoint = null;
+        int every = 10;
+        boolean resume = false;
+        boolean batched = false;
+        boolean assembled = false;
+        boolean flocked = false;
+        int budget = Integer.MAX_VALUE;
+        double solved = Double.POSITIVE_INFINITY;
+        boolean timeout = false;
+        int steady = 0;
+        Long course = null;
+        int courses = 0;
+        int breeders = 0;
+        int population = Pool.POPULATION;
+        Integer stale = null;
+        Integer species = null;
+        Double threshold = null;
+        Double crossover = null;
+        Activation activation = null;
+        for (int i = 0; i < args.length; ++i)
+            if (args[i].equals("--generations"))
+                generations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--time"))
+                nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(args[++i]));
+            else if (args[i].equals("--threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("--checkpoint"))
+                checkpoint = Paths.get(args[++i]);
+            else if (args[i].equals("--every"))
+                every = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--resume"))
+                resume = true;
+            else if (args[i].equals("--batch"))
+                batched = true;
+            else if (args[i].equals("--assemble"))
+                assembled = true;
+            else if (args[i].equals("--flock"))
+                flocked = true;
+            else if (args[i].equals("--budget"))
+                budget = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--solved"))
+                solved = Double.parseDouble(args[++i]);
+            else if (args[i].equals("--timeout"))
+                timeout = true;
+            else if (args[i].equals("--steady"))
+                steady = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--course"))
+                course = Long.parseLong(args[++i]);
+            else if (args[i].equals("--race"))
+                courses = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--breeders"))
+                breeders = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--population"))
+                population = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--stale"))
+                stale = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--species"))
+                species = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--threshold"))
+                threshold = Double.parseDouble(args[++i]);
+            else if (args[i].equals("--crossover"))
+                crossover = Double.parseDouble(args[++i]);
+            else if (args[i].equals("--activation"))
+                activation = Activation.valueOf(args[++i].toUpperCase());
+            else {
+                System.err.println("Usage: Headless [--generations N]"
+                        + " [--time SECONDS] [--threads N] [--seed SEED]"
+                        + " [--checkpoint FILE [--every N] [--resume]]"
+                        + " [--activation EXACT|TABLE|RATIONAL]"
+                        + " [--batch | --assemble]"
+                        + " [--flock] [--budget TICKS] [--solved FITNESS]"
+                        + " [--timeout] [--steady N] [--course SEED]"
+                        + " [--race COURSES] [--breeders N]"
+                        + " [--population N] [--stale N] [--species N]"
+                        + " [--threshold DELTA]"
+                        + " [--crossover PROBABILITY]");
+                System.exit(1);
+            }
+
+        if (species != null && species < 1) {
+            System.err.println("--species must be at least 1");
+            System.exit(1);
+        }
+        if (every < 1) {
+            System.err.println("--every must be at least 1");
+            System.exit(1);
+        }
+        if (batched && assembled) {
+            System.err.println("--assemble cannot be combined with --batch");
+            System.exit(1);
+        }
+        if (batched && steady > 0) {
+            System.err.println("--steady cannot be combined with --batch");
+            System.exit(1);
+        }
+
+        Random rnd = seed == null ? new Random() : new Random(seed);
+        final Pool pool;
+        if (resume && checkpoint != null && Files.exists(checkpoint)) {
+            final Checkpoint restored = Checkpoint.read(checkpoint);
+            pool = restored.pool;
+            if (restored.simulation != null)
+                rnd = restored.simulation;
+        } else
+            pool = new Pool(population,
+                    seed == null ? new Random() : new Random(seed));
+        pool.setParallelism(breeders);
+        if (stale != null)
+            pool.staleSpecies = stale;
+        if (species != null)
+            pool.maxSpecies = species;
+        if (threshold != null)
+            pool.deltaThreshold = threshold;
+        if (crossover != null)
+            pool.crossover = crossover;
+        if (activation != null)
+            pool.activation = activation;
+        final Simulation simulation = new Simulation(pool, rnd);
+        simulation.setParallelism(threads);
+        simulation.setBatched(batched);
+        simulation.setAssembled(assembled);
+        simulation.setFlocked(flocked);
+        simulation.setBudget(budget);
+        simulation.setSolved(solved);
+        simulation.setTimeout(timeout);
+        simulation.setSteady(steady);
+        if (course != null)
+            simulation.setCourse(course);
+        final Headless headless = new Headless(simulation);
+        if (checkpoint != null)
+            headless.setCheckpoint(checkpoint, every);
+        if (courses > 0)
+            headless.setRacing(new Racing(simulation,
+                    course != null ? course : rnd.nextLong(), courses,
+                    Racing.CONFIDENCE));
+        headless.run(generations, nanos);
+    }
+
+    private final Simulation simulation;
+
+    private Path   checkpoint;
+    private int    every;
+    private Racing racing;
+
+    public Headless(final Simulation simulation) {
+        this.simulation = simulation;
+    }
+
+    public void run(final int generations, final long nanos) {
+        final Pool pool = simulation.pool;
+        if (pool.species.isEmpty())
+            pool.initializePool();
+        simulation.initializeGame();
+
+        final long start = System.nanoTime();
+        long ticks = 0L;
+        int done = 0;
+        while (done < generations && System.nanoTime() - start < nanos) {
+            if (racing != null) {
+                racing.evaluate();
+                pool.newGeneration();
+                ticks = racing.ticks();
+            } else {
+                simulation.eval();
+                simulation.update();
+                ++ticks;
+                if (!simulation.learn())
+                    continue;
+            }
+            ++done;
+            report(pool, done, ticks, System.nanoTime() - start,
+                    simulation.ended);
+            if (checkpoint != null && pool.generation % every == 0)
+                try {
+                    Checkpoint.write(pool, simulation.rnd, checkpoint);
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                }
+            if (simulation.ended == Termination.SOLVED)
+                break;
+        }
+        report(pool, done, ticks, System.nanoTime() - start, null);
+    }
+
+    public void setCheckpoint(final Path checkpoint, final int every) {
+        this.checkpoint = checkpoint;
+        this.every = every;
+    }
+
+    public void setRacing(final Racing racing) {
+        this.racing = racing;
+    }
+
+    private void report(final Pool pool, final int generations,
+            final long ticks, final long elapsed,
+            final Termination termination) {
+        final double seconds = Math.max(elapsed, 1L) / 1e9;
+        System.out.printf("GENERATION %d  FITNESS %.1f  SPECIES %d"
+                + "  %.0f %s  %.1f GENERATIONS/MIN%s%n", pool.generation,
+                pool.maxFitness, pool.species.size(), ticks / seconds,
+                racing != null ? "BIRD-TICKS/S" : "TICKS/S",
+                generations * 60.0 / seconds,
+                termination == null ? "" : "  ENDED " + termination);
+    }
+}
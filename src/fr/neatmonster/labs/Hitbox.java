@@ -0,0 +1,108 @@
+package fr.neatmonster.labs;
+
+import static fr.neatmonster.labs.Simulation.BIRD_HEIGHT;
+import static fr.neatmonster.labs.Simulation.BIRD_WIDTH;
+import static fr.neatmonster.labs.Simulation.HEIGHT;
+import static fr.neatmonster.labs.Simulation.TUBE_APERTURE;
+import static fr.neatmonster.labs.Simulation.TUBE_HEIGHT;
+import static fr.neatmonster.labs.Simulation.TUBE_WIDTH;
+import static fr.neatmonster.labs.Simulation.WIDTH;
+
+import java.util.List;
+
+import fr.neatmonster.labs.Simulation.Tube;
+
+class Hitbox {
+    private static final int STEPS = 4;
+
+    private static final int[] XS = new int[] { 2, 6, 14, 18, 26, 50, 54, 58,
+            62, 66, 70, 70, 66, 62, 42, 22, 14, 10, 6, 2 };
+    private static final int[] YS = new int[] { -34, -38, -42, -46, -50, -50,
+            -46, -42, -38, -26, -22, -18, -10, -6, -2, -2, -6, -10, -18, -22 };
+
+    private static final double X = WIDTH / 3 - BIRD_HEIGHT / 2;
+
+    private static final double[][] xs    = new double[180 * STEPS + 1][];
+    private static final double[][] ys    = new double[180 * STEPS + 1][];
+    private static final double[]   minXs = new double[180 * STEPS + 1];
+    private static final double[]   maxXs = new double[180 * STEPS + 1];
+    private static final double[]   minYs = new double[180 * STEPS + 1];
+    private static final double[]   maxYs = new double[180 * STEPS + 1];
+
+    static {
+        for (int i = 0; i < xs.length; ++i) {
+            final double theta = -(i / (double) STEPS - 90.0) / 180.0 * Math.PI;
+            final double cos = Math.cos(theta);
+            final double sin = Math.sin(theta);
+            xs[i] = new double[XS.length];
+            ys[i] = new double[XS.length];
+            minXs[i] = minYs[i] = Double.POSITIVE_INFINITY;
+            maxXs[i] = maxYs[i] = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < XS.length; ++j) {
+                final double x = XS[j] - BIRD_WIDTH / 2;
+                final double y = YS[j] + 52 - BIRD_HEIGHT / 2;
+                xs[i][j] = X + BIRD_WIDTH / 2 + cos * x - sin * y;
+                ys[i][j] = BIRD_HEIGHT / 2 + sin * x + cos * y;
+                minXs[i] = Math.min(minXs[i], xs[i][j]);
+                maxXs[i] = Math.max(maxXs[i], xs[i][j]);
+                minYs[i] = Math.min(minYs[i], ys[i][j]);
+                maxYs[i] = Math.max(maxYs[i], ys[i][j]);
+            }
+        }
+    }
+
+    static boolean collides(final double angle, final double height,
+            final List<Tube> tubes) {
+        final int i = (int) Math.round((angle + 90.0) * STEPS);
+        final double dy = HEIGHT - height;
+        for (int t = 0; t < tubes.size(); ++t) {
+            final Tube tube = tubes.get(t);
+            if (tube.position >= maxXs[i]
+                    || tube.position + TUBE_WIDTH <= minXs[i])
+                continue;
+            final double ceil = HEIGHT - tube.height - TUBE_APERTURE;
+            final double floor = HEIGHT - tube.height;
+            if (minYs[i] + dy < ceil && intersects(xs[i], ys[i], dy,
+                    tube.position, ceil - TUBE_HEIGHT, ceil))
+                return true;
+            if (maxYs[i] + dy > floor && intersects(xs[i], ys[i], dy,
+                    tube.position, floor, floor + TUBE_HEIGHT))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean intersects(final double[] xs, final double[] ys,
+            final double dy, final double x0, final double y0,
+            final double y1) {
+        final double x1 = x0 + TUBE_WIDTH;
+        boolean inside = false;
+        for (int j = 0, k = xs.length - 1; j < xs.length; k = j++) {
+            final double ax = xs[k];
+            final double ay = ys[k] + dy;
+            final double bx = xs[j];
+            final double by = ys[j] + dy;
+            if (bx > x0 && bx < x1 && by > y0 && by < y1)
+                return true;
+            if (!(ax <= x0 && bx <= x0 || ax >= x1 && bx >= x1
+                    || ay <= y0 && by <= y0 || ay >= y1 && by >= y1)) {
+                final double c0 = side(ax, ay, bx, by, x0, y0);
+                final double c1 = side(ax, ay, bx, by, x1, y0);
+                final double c2 = side(ax, ay, bx, by, x1, y1);
+                final double c3 = side(ax, ay, bx, by, x0, y1);
+                if (!(c0 > 0.0 && c1 > 0.0 && c2 > 0.0 && c3 > 0.0
+                        || c0 < 0.0 && c1 < 0.0 && c2 < 0.0 && c3 < 0.0))
+                    return true;
+            }
+            if (ay > y0 != by > y0
+                    && x0 < (bx - ax) * (y0 - ay) / (by - ay) + ax)
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    private static double side(final double ax, final double ay,
+            final double bx, final double by, final double x, final double y) {
+        return (bx - ax) * (y - ay) - (by - ay) * (x - ax);
+    }
+}
@@ -0,0 +1,73 @@
+package fr.neatmonster.labs;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.neatmonster.labs.neat.Genome;
+import fr.neatmonster.labs.neat.Pool;
+
+public class Protocol {
+    public static final int DEFAULT_PORT = 7070;
+
+    public static List<Genome> readGenomes(final DataInputStream in,
+            final Pool pool) throws IOException {
+        final int count = in.readInt();
+        final List<Genome> genomes = new ArrayList<Genome>(count);
+        for (int i = 0; i < count; ++i) {
+            final Genome genome = new Genome(pool);
+            genome.fitness = in.readDouble();
+            final int genes = in.readInt();
+            for (int j = 0; j < genes; ++j) {
+                final int input = in.readInt();
+                final int output = in.readInt();
+                genome.genes.add(input, output, in.readDouble(), true, 0);
+            }
+            genomes.add(genome);
+        }
+        return genomes;
+    }
+
+    public static void readFitness(final DataInputStream in,
+            final List<Genome> genomes) throws IOException {
+        final int count = in.readInt();
+        if (count != genomes.size())
+            throw new IOException("Expected " + genomes.size()
+                    + " fitness values, got " + count);
+        final double[] fitness = new double[count];
+        for (int i = 0; i < count; ++i)
+            fitness[i] = in.readDouble();
+        for (int i = 0; i < count; ++i)
+            genomes.get(i).fitness = fitness[i];
+    }
+
+    public static void writeFitness(final DataOutputStream out,
+            final List<Genome> genomes) throws IOException {
+        out.writeInt(genomes.size());
+        for (final Genome genome : genomes)
+            out.writeDouble(genome.fitness);
+        out.flush();
+    }
+
+    public static void writeGenomes(final DataOutputStream out,
+            final List<Genome> genomes) throws IOException {
+        out.writeInt(genomes.size());
+        for (final Genome genome : genomes) {
+            out.writeDouble(genome.fitness);
+            int enabled = 0;
+            for (int i = 0; i < genome.genes.size(); ++i)
+                if (genome.genes.enabled(i))
+                    ++enabled;
+            out.writeInt(enabled);
+            for (int i = 0; i < genome.genes.size(); ++i)
+                if (genome.genes.enabled(i)) {
+                    out.writeInt(genome.genes.input(i));
+                    out.writeInt(genome.genes.output(i));
+                    out.writeDouble(genome.genes.weight(i));
+                }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,136 @@
+package fr.neatmonster.labs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.neatmonster.labs.neat.Genome;
+import fr.neatmonster.labs.neat.Pool;
+import fr.neatmonster.labs.neat.Species;
+
+public class Racing {
+    public static final double CONFIDENCE = 1.96;
+
+    private final Simulation simulation;
+    private final long[]     seeds;
+    private final double     confidence;
+
+    private long ticks;
+    private int  evaluations;
+
+    public Racing(final Simulation simulation, final long seed,
+            final int courses, final double confidence) {
+        this.simulation = simulation;
+        this.confidence = confidence;
+        seeds = new long[courses];
+        for (int k = 0; k < courses; ++k)
+            seeds[k] = seed + k;
+    }
+
+    public int evaluations() {
+        return evaluations;
+    }
+
+    public void evaluate() {
+        final Pool pool = simulation.pool;
+        final List<Genome> genomes = new ArrayList<Genome>();
+        final Set<Long> fingerprints = new HashSet<Long>();
+        for (final Species species : pool.species)
+            for (final Genome genome : species.genomes) {
+                genomes.add(genome);
+                fingerprints.add(genome.genes.fingerprint());
+            }
+        simulation.prune(fingerprints);
+
+        final Map<Genome, Integer> indices = new IdentityHashMap<Genome, Integer>();
+        for (int i = 0; i < genomes.size(); ++i)
+            indices.put(genomes.get(i), i);
+        final double[] sums = new double[genomes.size()];
+        final double[] squares = new double[genomes.size()];
+        final int[] counts = new int[genomes.size()];
+        final double maxFitness = pool.maxFitness;
+
+        List<Genome> racing = genomes;
+        Termination termination = null;
+        for (int round = 0; round < seeds.length; ++round) {
+            simulation.setCourse(seeds[round]);
+            simulation.initializeGame(seeds[round], racing);
+            simulation.flown = 0L;
+            do {
+                simulation.eval();
+                simulation.update();
+            } while ((termination = simulation.termination()) == null);
+            simulation.record();
+            ticks += simulation.flown;
+            evaluations += racing.size();
+
+            for (final Genome genome : racing) {
+                final int i = indices.get(genome);
+                sums[i] += genome.fitness;
+                squares[i] += genome.fitness * genome.fitness;
+                ++counts[i];
+            }
+            if (round == 0 || round == seeds.length - 1)
+                continue;
+
+            final double[] lowers = new double[genomes.size()];
+            final double[] uppers = new double[genomes.size()];
+            for (final Genome genome : racing) {
+                final int i = indices.get(genome);
+                final double mean = sums[i] / counts[i];
+                final double variance = Math.max(squares[i] / counts[i]
+                        - mean * mean, 0.0) * counts[i] / (counts[i] - 1);
+                final double bound = confidence
+                        * Math.sqrt(variance / counts[i]);
+                lowers[i] = mean - bound;
+                uppers[i] = mean + bound;
+            }
+
+            final Set<Genome> survivors = new HashSet<Genome>();
+            for (final Species species : pool.species) {
+                final double[] sorted = new double[species.genomes.size()];
+                int count = 0;
+                for (final Genome genome : species.genomes) {
+                    final int i = indices.get(genome);
+                    if (counts[i] == round + 1)
+                        sorted[count++] = lowers[i];
+                }
+                Arrays.sort(sorted, 0, count);
+                final int needed = (species.genomes.size() + 1) / 2;
+                final double threshold = sorted[Math.max(count - needed, 0)];
+                for (final Genome genome : species.genomes) {
+                    final int i = indices.get(genome);
+                    if (counts[i] == round + 1 && uppers[i] >= threshold)
+                        survivors.add(genome);
+                }
+            }
+            final List<Genome> next = new ArrayList<Genome>();
+            for (final Genome genome : racing)
+                if (survivors.contains(genome))
+                    next.add(genome);
+            racing = next;
+        }
+
+        pool.maxFitness = maxFitness;
+        double fittest = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < genomes.size(); ++i) {
+            final double fitness = sums[i] / counts[i];
+            genomes.get(i).fitness = fitness;
+            pool.maxFitness = Math.max(pool.maxFitness, fitness);
+            fittest = Math.max(fittest, fitness);
+        }
+        if (simulation.solved(fittest))
+            simulation.ended = Termination.SOLVED;
+        else
+            simulation.ended = termination == Termination.SOLVED ? null
+                    : termination;
+    }
+
+    public long ticks() {
+        return ticks;
+    }
+}
@@ -0,0 +1,668 @@
+package fr.neatmonster.labs;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
+import static fr.neatmonster.labs.neat.Pool.TIMEOUT;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import fr.neatmonster.labs.neat.Assembler;
+import fr.neatmonster.labs.neat.Evaluator;
+import fr.neatmonster.labs.neat.Genome;
+import fr.neatmonster.labs.neat.Network;
+import fr.neatmonster.labs.neat.Pool;
+import fr.neatmonster.labs.neat.Population;
+import fr.neatmonster.labs.neat.Species;
+
+public class Simulation {
+    static class Bird {
+        final Species   species;
+        final Genome    genome;
+        final Evaluator evaluator;
+        double          height;
+        double          velocity;
+        double          angle;
+        boolean         flap;
+        int             flaps;
+        boolean         dead;
+        double          progress;
+        int             stalled;
+        int             born;
+
+        private Bird(final Species species, final Genome genome,
+                final Evaluator evaluator) {
+            this.species = species;
+            this.genome = genome;
+            this.evaluator = evaluator;
+            height = HEIGHT / 2.0;
+            progress = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Batch extends RecursiveAction {
+        private final boolean physics;
+        private final Tube    nextTube;
+        private final int     from;
+        private final int     to;
+
+        private Batch(final boolean physics, final Tube nextTube,
+                final int from, final int to) {
+            this.physics = physics;
+            this.nextTube = nextTube;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                final int middle = from + to >>> 1;
+                invokeAll(new Batch(physics, nextTube, from, middle),
+                        new Batch(physics, nextTube, middle, to));
+            } else if (physics && flock != null)
+                flock.move(from, to, tubes);
+            else if (physics)
+                update(from, to);
+            else
+                eval(nextTube, from, to, new double[INPUTS],
+                        new double[OUTPUTS]);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Inference extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        private Inference(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                final int middle = from + to >>> 1;
+                invokeAll(new Inference(from, middle),
+                        new Inference(middle, to));
+            } else
+                for (int group = from; group < to; ++group)
+                    population.evaluate(group, inputs, dead, outputs);
+        }
+    }
+
+    static class Tube {
+        final double height;
+        double       position;
+        boolean      passed;
+
+        Tube(final int height) {
+            this.height = height;
+            position = WIDTH;
+            passed = false;
+        }
+    }
+
+    static final int WIDTH         = 576;
+    static final int HEIGHT        = 768;
+    static final int BIRD_WIDTH    = 72;
+    static final int BIRD_HEIGHT   = 52;
+    static final int FLOOR_OFFSET  = 96;
+    static final int FLOOR_SPEED   = 5;
+    static final int TUBE_WIDTH    = 104;
+    static final int TUBE_HEIGHT   = 640;
+    static final int TUBE_APERTURE = 200;
+
+    private static final int BATCH_SIZE      = 64;
+    private static final int SPAWN_CLEARANCE = 160;
+    private static final int SPAWN_GRACE     = 5;
+
+    public final Pool   pool;
+    public final Random rnd;
+
+    private ForkJoinPool      executor;
+    private Map<Long, Network> networks = new HashMap<Long, Network>();
+    private Assembler          assembler;
+    private boolean            batched;
+    private boolean            flocked;
+    private int                budget   = Integer.MAX_VALUE;
+    private double             solved   = Double.POSITIVE_INFINITY;
+    private boolean            timeout;
+    private boolean            timedOut;
+    private double             fittest;
+    private int                steady;
+    private int                replacements;
+    private Course             course;
+    private final Map<Long, Course> courses = new HashMap<Long, Course>();
+    private int                launched;
+    private Population         population;
+    private final double[][]   inputs   = new double[INPUTS][];
+    private final double[][]   outputs  = new double[OUTPUTS][];
+    private boolean[]          dead;
+
+    private final double[] input  = new double[INPUTS];
+    private final double[] output = new double[OUTPUTS];
+
+    int speed;
+    int ticks;
+    int ticksTubes;
+
+    final List<Bird> birds = new ArrayList<Bird>();
+    final List<Tube> tubes = new ArrayList<Tube>();
+
+    Flock flock;
+
+    Bird        best;
+    int         score;
+    Termination ended;
+    long        flown;
+
+    public Simulation(final Pool pool) {
+        this(pool, new Random());
+    }
+
+    public Simulation(final Pool pool, final Random rnd) {
+        this.pool = pool;
+        this.rnd = rnd;
+    }
+
+    public boolean assess() {
+        best = birds.get(0);
+        timedOut = false;
+        fittest = Double.NEGATIVE_INFINITY;
+        if (flock != null) {
+            boolean expired = false;
+            for (int lane = 0; lane < flock.size; ++lane) {
+                final Bird bird = birds.get(flock.indices[lane]);
+                ++flown;
+                double fitness = ticks - bird.born
+                        - flock.flaps[lane] * 1.5;
+                fitness = fitness == 0.0 ? -1.0 : fitness;
+
+                bird.genome.fitness = fitness;
+                if (fitness > pool.maxFitness)
+                    pool.maxFitness = fitness;
+                if (fitness > fittest)
+                    fittest = fitness;
+
+                if (fitness > best.genome.fitness)
+                    best = bird;
+
+                if (steady > 0 && ticks - bird.born >= budget) {
+                    flock.kill(lane);
+                    expired = true;
+                    continue;
+                }
+                if (!timeout)
+                    continue;
+                if (fitness > flock.progress[lane]) {
+                    flock.progress[lane] = fitness;
+                    flock.stalled[lane] = 0;
+                } else if (++flock.stalled[lane] >= TIMEOUT
+                        + (ticks - bird.born) / 4) {
+                    flock.kill(lane);
+                    timedOut = true;
+                }
+            }
+            if (timedOut || expired)
+                flock.compact();
+            return flock.size == 0;
+        }
+
+        boolean allDead = true;
+        for (final Bird bird : birds) {
+            if (bird.dead)
+                continue;
+            ++flown;
+
+            double fitness = ticks - bird.born - bird.flaps * 1.5;
+            fitness = fitness == 0.0 ? -1.0 : fitness;
+
+            bird.genome.fitness = fitness;
+            if (fitness > pool.maxFitness)
+                pool.maxFitness = fitness;
+            if (fitness > fittest)
+                fittest = fitness;
+
+            if (fitness > best.genome.fitness)
+                best = bird;
+
+            if (steady > 0 && ticks - bird.born >= budget) {
+                bird.dead = true;
+                continue;
+            }
+            if (!timeout) {
+                allDead = false;
+                continue;
+            }
+            if (fitness > bird.progress) {
+                bird.progress = fitness;
+                bird.stalled = 0;
+            } else if (++bird.stalled >= TIMEOUT + (ticks - bird.born) / 4) {
+                bird.dead = true;
+                timedOut = true;
+                continue;
+            }
+            allDead = false;
+        }
+
+        return allDead;
+    }
+
+    private void cull() {
+        final Set<Genome> members = Collections
+                .newSetFromMap(new IdentityHashMap<Genome, Boolean>());
+        for (final Species species : pool.species)
+            members.addAll(species.genomes);
+
+        final Map<Long, Network> compiled = new HashMap<Long, Network>();
+        for (final Bird bird : birds)
+            if (!members.contains(bird.genome))
+                bird.dead = true;
+            else if (!bird.dead)
+                compiled.put(bird.genome.genes.fingerprint(),
+                        bird.genome.network);
+        networks = compiled;
+
+        if (flock == null)
+            return;
+        for (int lane = 0; lane < flock.size; ++lane)
+            if (birds.get(flock.indices[lane]).dead)
+                flock.kill(lane);
+        flock.compact();
+    }
+
+    public void eval() {
+        Tube nextTube = null;
+        for (final Tube tube : tubes)
+            if (tube.position + TUBE_WIDTH > WIDTH / 3 - BIRD_WIDTH / 2
+                    && (nextTube == null || tube.position < nextTube.position))
+                nextTube = tube;
+        final int size = flock != null ? flock.size : birds.size();
+        if (population != null)
+            infer(nextTube);
+        else if (executor == null)
+            eval(nextTube, 0, size, input, output);
+        else
+            executor.invoke(new Batch(false, nextTube, 0, size));
+    }
+
+    private void eval(final Tube nextTube, final int from, final int to,
+            final double[] input, final double[] output) {
+        for (int i = from; i < to; ++i) {
+            final Bird bird = birds.get(flock != null ? flock.indices[i] : i);
+            if (bird.dead)
+                continue;
+
+            input[0] = (flock != null ? flock.heights[i] : bird.height)
+                    / HEIGHT;
+            if (nextTube == null) {
+                input[1] = 0.5;
+                input[2] = 1.0;
+            } else {
+                input[1] = nextTube.height / HEIGHT;
+                input[2] = nextTube.position / WIDTH;
+            }
+            input[3] = 1.0;
+
+            bird.evaluator.evaluate(input, output);
+            if (output[0] > 0.5 && flock != null)
+                flock.flapping[i] = true;
+            else if (output[0] > 0.5)
+                bird.flap = true;
+        }
+    }
+
+    private Network compile(final Genome genome,
+            final Map<Long, Network> compiled) {
+        final long fingerprint = genome.genes.fingerprint();
+        Network network = compiled.get(fingerprint);
+        if (network == null) {
+            network = networks.get(fingerprint);
+            if (network == null)
+                network = new Network(genome.genes, pool.activation);
+            compiled.put(fingerprint, network);
+        }
+        return network.clone();
+    }
+
+    private Evaluator evaluator(final Genome genome) {
+        return assembler != null ? assembler.assemble(genome) : genome.network;
+    }
+
+    private void infer(final Tube nextTube) {
+        if (flock != null) {
+            infer(nextTube, flock);
+            return;
+        }
+
+        for (int i = 0; i < birds.size(); ++i) {
+            final Bird bird = birds.get(i);
+            dead[i] = bird.dead;
+            inputs[0][i] = bird.height / HEIGHT;
+            if (nextTube == null) {
+                inputs[1][i] = 0.5;
+                inputs[2][i] = 1.0;
+            } else {
+                inputs[1][i] = nextTube.height / HEIGHT;
+                inputs[2][i] = nextTube.position / WIDTH;
+            }
+            inputs[3][i] = 1.0;
+        }
+
+        if (executor == null)
+            for (int group = 0; group < population.groups(); ++group)
+                population.evaluate(group, inputs, dead, outputs);
+        else
+            executor.invoke(new Inference(0, population.groups()));
+
+        for (int i = 0; i < birds.size(); ++i)
+            if (!dead[i] && outputs[0][i] > 0.5)
+                birds.get(i).flap = true;
+    }
+
+    private void infer(final Tube nextTube, final Flock flock) {
+        final double tubeHeight = nextTube == null ? 0.5
+                : nextTube.height / HEIGHT;
+        final double tubePosition = nextTube == null ? 1.0
+                : nextTube.position / WIDTH;
+        for (int lane = 0; lane < flock.size; ++lane) {
+            final int i = flock.indices[lane];
+            inputs[0][i] = flock.heights[lane] / HEIGHT;
+            inputs[1][i] = tubeHeight;
+            inputs[2][i] = tubePosition;
+            inputs[3][i] = 1.0;
+        }
+
+        if (executor == null)
+            for (int group = 0; group < population.groups(); ++group)
+                population.evaluate(group, inputs, dead, outputs);
+        else
+            executor.invoke(new Inference(0, population.groups()));
+
+        for (int lane = 0; lane < flock.size; ++lane)
+            if (outputs[0][flock.indices[lane]] > 0.5)
+                flock.flapping[lane] = true;
+    }
+
+    private Bird hatch(final Species species, final Genome genome,
+            final Map<Long, Network> compiled) {
+        final Double fitness = course == null ? null
+                : course.fitnesses.get(genome.genes.fingerprint());
+        if (fitness != null) {
+            genome.fitness = fitness;
+            final Bird bird = new Bird(species, genome, null);
+            bird.dead = true;
+            return bird;
+        }
+        genome.network = compile(genome, compiled);
+        return new Bird(species, genome, evaluator(genome));
+    }
+
+    public void initializeGame() {
+        final Map<Long, Network> compiled = new HashMap<Long, Network>();
+        final Set<Long> fingerprints = new HashSet<Long>();
+        birds.clear();
+        for (final Species species : pool.species)
+            for (final Genome genome : species.genomes) {
+                birds.add(hatch(species, genome, compiled));
+                fingerprints.add(genome.genes.fingerprint());
+            }
+        networks = compiled;
+        prune(fingerprints);
+        restart();
+    }
+
+    public void initializeGame(final long seed, final List<Genome> genomes) {
+        final Map<Long, Network> compiled = new HashMap<Long, Network>();
+        rnd.setSeed(seed);
+        birds.clear();
+        for (final Genome genome : genomes)
+            birds.add(hatch(null, genome, compiled));
+        networks = compiled;
+        restart();
+    }
+
+    public boolean learn() {
+        if (steady > 0)
+            return replace();
+
+        final Termination termination = termination();
+        if (termination == null)
+            return false;
+        ended = termination;
+        record();
+        pool.newGeneration();
+        initializeGame();
+        return true;
+    }
+
+    void prune(final Set<Long> fingerprints) {
+        for (final Course course : courses.values())
+            course.fitnesses.keySet().retainAll(fingerprints);
+    }
+
+    void record() {
+        if (course != null)
+            for (final Bird bird : birds)
+                if (bird.dead)
+                    course.fitnesses.put(bird.genome.genes.fingerprint(),
+                            bird.genome.fitness);
+    }
+
+    private boolean replace() {
+        assess();
+        if (fittest >= solved) {
+            ended = Termination.SOLVED;
+            return true;
+        }
+        final double height = spawnHeight();
+        if (Double.isNaN(height))
+            return false;
+        boolean respeciated = false;
+        for (int i = 0; i < birds.size(); ++i) {
+            final Bird bird = birds.get(i);
+            if (!bird.dead)
+                continue;
+
+            final Genome child = pool.replace(bird.genome);
+            final Species species = pool.addToSpecies(child);
+            child.network = compile(child, networks);
+            final Bird spawn = new Bird(species, child, evaluator(child));
+            spawn.height = height;
+            spawn.born = ticks;
+            birds.set(i, spawn);
+            if (flock != null)
+                flock.spawn(i);
+
+            if (++replacements % steady == 0) {
+                pool.respeciate();
+                cull();
+                respeciated = true;
+            }
+        }
+        return respeciated;
+    }
+
+    private void restart() {
+        population = null;
+        if (batched && steady == 0) {
+            final List<Network> networks = new ArrayList<Network>();
+            for (final Bird bird : birds)
+                networks.add(bird.dead ? null : bird.genome.network);
+            population = new Population(networks);
+            for (int i = 0; i < INPUTS; ++i)
+                inputs[i] = new double[birds.size()];
+            for (int i = 0; i < OUTPUTS; ++i)
+                outputs[i] = new double[birds.size()];
+            dead = new boolean[birds.size()];
+        }
+        flock = null;
+        if (flocked) {
+            flock = new Flock(birds);
+            if (batched)
+                dead = flock.dead;
+        }
+
+        speed = 75;
+        ticks = 0;
+        ticksTubes = 0;
+        launched = 0;
+
+        best = null;
+        score = 0;
+
+        tubes.clear();
+    }
+
+    public void setAssembled(final boolean assembled) {
+        assembler = assembled ? new Assembler(pool.activation) : null;
+    }
+
+    public void setBatched(final boolean batched) {
+        this.batched = batched;
+    }
+
+    public void setBudget(final int budget) {
+        this.budget = budget;
+    }
+
+    public void setCourse(final long seed) {
+        course = courses.get(seed);
+        if (course == null)
+            courses.put(seed, course = new Course(seed));
+    }
+
+    public void setFlocked(final boolean flocked) {
+        this.flocked = flocked;
+    }
+
+    public void setParallelism(final int parallelism) {
+        if (executor != null)
+            executor.shutdown();
+        executor = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    public void setSolved(final double solved) {
+        this.solved = solved;
+    }
+
+    public void setSteady(final int steady) {
+        this.steady = steady;
+    }
+
+    public void setTimeout(final boolean timeout) {
+        this.timeout = timeout;
+    }
+
+    boolean solved(final double fitness) {
+        return fitness >= solved;
+    }
+
+    private double spawnHeight() {
+        double low = FLOOR_OFFSET;
+        double high = HEIGHT;
+        for (final Tube tube : tubes)
+            if (tube.position + TUBE_WIDTH > WIDTH / 3 - BIRD_WIDTH / 2
+                    && tube.position < WIDTH / 3 + BIRD_WIDTH
+                            + FLOOR_SPEED * SPAWN_GRACE) {
+                low = Math.max(low, tube.height);
+                high = Math.min(high, tube.height + TUBE_APERTURE);
+            }
+        if (high - low < SPAWN_CLEARANCE)
+            return Double.NaN;
+        return (low + high) / 2.0 + BIRD_HEIGHT / 2;
+    }
+
+    public Termination termination() {
+        final boolean allDead = assess();
+        if (fittest >= solved)
+            return Termination.SOLVED;
+        if (allDead)
+            return timedOut ? Termination.TIMEOUT : Termination.EXTINCT;
+        if (ticks >= budget)
+            return Termination.BUDGET;
+        return null;
+    }
+
+    public void update() {
+        ++ticks;
+        ++ticksTubes;
+
+        if (ticksTubes == speed) {
+            final int height = course != null ? course.height(launched++)
+                    : FLOOR_OFFSET + 100 + rnd.nextInt(
+                            HEIGHT - 200 - TUBE_APERTURE - FLOOR_OFFSET);
+            tubes.add(new Tube(height));
+            ticksTubes = 0;
+        }
+
+        final Iterator<Tube> it = tubes.iterator();
+        while (it.hasNext()) {
+            final Tube tube = it.next();
+            tube.position -= FLOOR_SPEED;
+            if (tube.position + TUBE_WIDTH < 0.0)
+                it.remove();
+            if (!tube.passed && tube.position + TUBE_WIDTH < WIDTH / 3
+                    - BIRD_WIDTH / 2) {
+                ++score;
+                if (score % 10 == 0) {
+                    speed -= 5;
+                    speed = Math.max(speed, 20);
+                }
+                tube.passed = true;
+            }
+        }
+
+        final int size = flock != null ? flock.size : birds.size();
+        if (executor == null && flock != null)
+            flock.move(0, size, tubes);
+        else if (executor == null)
+            update(0, size);
+        else
+            executor.invoke(new Batch(true, null, 0, size));
+        if (flock != null)
+            flock.compact();
+    }
+
+    private void update(final int from, final int to) {
+        for (int i = from; i < to; ++i) {
+            final Bird bird = birds.get(i);
+            if (bird.dead)
+                continue;
+
+            if (bird.flap) {
+                bird.velocity = 10;
+                bird.flap = false;
+                ++bird.flaps;
+            }
+
+            bird.height += bird.velocity;
+            bird.velocity -= 0.98;
+            bird.angle = 3.0 * bird.velocity;
+            bird.angle = Math.max(-90.0, Math.min(90.0, bird.angle));
+
+            if (bird.height > HEIGHT) {
+                bird.height = HEIGHT;
+                bird.velocity = 0.0;
+                bird.angle = -bird.angle;
+            }
+
+            if (bird.height < FLOOR_OFFSET + BIRD_HEIGHT / 2
+                    || Hitbox.collides(bird.angle, bird.height, tubes))
+                bird.dead = true;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package fr.neatmonster.labs;
+
+public enum Termination {
+    BUDGET, EXTINCT, SOLVED, TIMEOUT
+}
@@ -0,0 +1,93 @@
+package fr.neatmonster.labs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+
+import fr.neatmonster.labs.neat.Activation;
+import fr.neatmonster.labs.neat.Genome;
+import fr.neatmonster.labs.neat.Pool;
+
+public class Worker {
+    public static void main(final String[] args) throws IOException {
+        String host = "localhost";
+        int port = Protocol.DEFAULT_PORT;
+        int budget = Integer.MAX_VALUE;
+        double solved = Double.POSITIVE_INFINITY;
+        boolean timeout = false;
+        Activation activation = Activation.EXACT;
+        for (int i = 0; i < args.length; ++i)
+            if (args[i].equals("--connect")) {
+                final String address = args[++i];
+                final int colon = address.lastIndexOf(':');
+                host = colon < 0 ? address : address.substring(0, colon);
+                if (colon >= 0)
+                    port = Integer.parseInt(address.substring(colon + 1));
+            } else if (args[i].equals("--activation"))
+                activation = Activation.valueOf(args[++i].toUpperCase());
+            else if (args[i].equals("--budget"))
+                budget = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--solved"))
+                solved = Double.parseDouble(args[++i]);
+            else if (args[i].equals("--timeout"))
+                timeout = true;
+            else {
+                System.err.println("Usage: Worker [--connect HOST:PORT]"
+                        + " [--activation EXACT|TABLE|RATIONAL]"
+                        + " [--budget TICKS] [--solved FITNESS] [--timeout]");
+                System.exit(1);
+            }
+
+        final Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        final Pool pool = new Pool();
+        pool.activation = activation;
+        final Simulation simulation = new Simulation(pool);
+        simulation.setBudget(budget);
+        simulation.setSolved(solved);
+        simulation.setTimeout(timeout);
+        new Worker(simulation).serve(socket);
+    }
+
+    private final Simulation simulation;
+
+    public Worker(final Simulation simulation) {
+        this.simulation = simulation;
+    }
+
+    public void evaluate(final long seed, final List<Genome> genomes) {
+        simulation.initializeGame(seed, genomes);
+        do {
+            simulation.eval();
+            simulation.update();
+        } while (simulation.termination() == null);
+    }
+
+    public void serve(final Socket socket) throws IOException {
+        try {
+            final DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                final long seed;
+                try {
+                    seed = in.readLong();
+                } catch (final EOFException e) {
+                    return;
+                }
+                final List<Genome> genomes = Protocol.readGenomes(in,
+                        simulation.pool);
+                evaluate(seed, genomes);
+                Protocol.writeFitness(out, genomes);
+            }
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package fr.neatmonster.labs.neat;
+
+public enum Activation {
+    EXACT(0.0) {
+        @Override
+        public double apply(final double x) {
+            return 2.0 / (1.0 + Math.exp(-4.9 * x)) - 1.0;
+        }
+    },
+    TABLE(2.3e-6) {
+        @Override
+        public double apply(final double x) {
+            final double position = (x + RANGE) * SCALE;
+            if (position <= 0.0)
+                return -1.0;
+            if (position >= STEPS)
+                return 1.0;
+            final int i = (int) position;
+            final double fraction = position - i;
+            return TABLE_VALUES[i]
+                    + (TABLE_VALUES[i + 1] - TABLE_VALUES[i]) * fraction;
+        }
+    },
+    RATIONAL(9.7e-5) {
+        @Override
+        public double apply(final double x) {
+            final double y = 2.45 * x;
+            if (y <= -LIMIT)
+                return -1.0;
+            if (y >= LIMIT)
+                return 1.0;
+            final double y2 = y * y;
+            return y * (135135.0 + y2 * (17325.0 + y2 * (378.0 + y2)))
+                    / (135135.0 + y2 * (62370.0 + y2 * (3150.0 + y2 * 28.0)));
+        }
+    };
+
+    private static final double   RANGE        = 4.0;
+    private static final int      STEPS        = 4096;
+    private static final double   SCALE        = STEPS / (2.0 * RANGE);
+    private static final double   LIMIT        = 4.97;
+    private static final double[] TABLE_VALUES = new double[STEPS + 1];
+
+    static {
+        for (int i = 0; i <= STEPS; ++i)
+            TABLE_VALUES[i] = EXACT.apply(i / SCALE - RANGE);
+    }
+
+    public final double error;
+
+    private Activation(final double error) {
+        this.error = error;
+    }
+
+    public abstract double apply(double x);
+}
@@ -0,0 +1,358 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Assembler {
+    private static class Constants {
+        private final ByteArrayOutputStream bytes   = new ByteArrayOutputStream();
+        private final DataOutputStream      out     = new DataOutputStream(
+                bytes);
+        private final Map<String, Integer>  indices = new HashMap<String, Integer>();
+        private int                         count   = 1;
+
+        private int add(final String key, final int size, final byte[] entry)
+                throws IOException {
+            Integer index = indices.get(key);
+            if (index == null) {
+                indices.put(key, index = count);
+                out.write(entry);
+                count += size;
+            }
+            return index;
+        }
+
+        private int klass(final String name) throws IOException {
+            final int utf8 = utf8(name);
+            return add("Class " + name, 1,
+                    new byte[] { CONSTANT_CLASS, (byte) (utf8 >> 8),
+                            (byte) utf8 });
+        }
+
+        private int number(final double value) throws IOException {
+            final long bits = Double.doubleToRawLongBits(value);
+            final byte[] entry = new byte[9];
+            entry[0] = CONSTANT_DOUBLE;
+            for (int i = 0; i < 8; ++i)
+                entry[i + 1] = (byte) (bits >>> 56 - 8 * i);
+            return add("Double " + bits, 2, entry);
+        }
+
+        private int reference(final int tag, final String owner,
+                final String name, final String type) throws IOException {
+            final int klass = klass(owner);
+            final int nameIndex = utf8(name);
+            final int typeIndex = utf8(type);
+            final int nameAndType = add("NameAndType " + name + " " + type, 1,
+                    new byte[] { CONSTANT_NAME_AND_TYPE,
+                            (byte) (nameIndex >> 8), (byte) nameIndex,
+                            (byte) (typeIndex >> 8), (byte) typeIndex });
+            return add(tag + " " + owner + " " + name + " " + type, 1,
+                    new byte[] { (byte) tag, (byte) (klass >> 8),
+                            (byte) klass, (byte) (nameAndType >> 8),
+                            (byte) nameAndType });
+        }
+
+        private int utf8(final String value) throws IOException {
+            final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+            final DataOutputStream data = new DataOutputStream(entry);
+            data.writeByte(CONSTANT_UTF8);
+            data.writeUTF(value);
+            return add("Utf8 " + value, 1, entry.toByteArray());
+        }
+    }
+
+    private static final int CAPACITY = 256;
+    private static final int MAX_CODE = 65535;
+
+    private static final int MAGIC         = 0xcafebabe;
+    private static final int CLASS_VERSION = 52;
+
+    private static final byte CONSTANT_UTF8          = 1;
+    private static final byte CONSTANT_DOUBLE        = 6;
+    private static final byte CONSTANT_CLASS         = 7;
+    private static final byte CONSTANT_FIELDREF      = 9;
+    private static final byte CONSTANT_METHODREF     = 10;
+    private static final byte CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ACC_PUBLIC  = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL   = 0x0010;
+    private static final int ACC_SUPER   = 0x0020;
+
+    private static final int ICONST_0      = 0x03;
+    private static final int DCONST_0      = 0x0e;
+    private static final int BIPUSH        = 0x10;
+    private static final int SIPUSH        = 0x11;
+    private static final int LDC2_W        = 0x14;
+    private static final int DLOAD         = 0x18;
+    private static final int ALOAD_0       = 0x2a;
+    private static final int ALOAD_1       = 0x2b;
+    private static final int ALOAD_2       = 0x2c;
+    private static final int DALOAD        = 0x31;
+    private static final int DSTORE        = 0x39;
+    private static final int DASTORE       = 0x52;
+    private static final int DADD          = 0x63;
+    private static final int DMUL          = 0x6b;
+    private static final int RETURN        = 0xb1;
+    private static final int GETSTATIC     = 0xb2;
+    private static final int GETFIELD      = 0xb4;
+    private static final int PUTFIELD      = 0xb5;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC  = 0xb8;
+    private static final int WIDE          = 0xc4;
+
+    private static final String NAME       = "fr/neatmonster/labs/neat/Assembled";
+    private static final String ACTIVATION = "fr/neatmonster/labs/neat/Activation";
+    private static final String EVALUATOR  = "fr/neatmonster/labs/neat/Evaluator";
+    private static final String NEURON     = "fr/neatmonster/labs/neat/Neuron";
+    private static final String OBJECT     = "java/lang/Object";
+
+    private static void local(final DataOutputStream code, final int opcode,
+            final int local) throws IOException {
+        if (local > 255) {
+            code.writeByte(WIDE);
+            code.writeByte(opcode);
+            code.writeShort(local);
+        } else {
+            code.writeByte(opcode);
+            code.writeByte(local);
+        }
+    }
+
+    private static void push(final DataOutputStream code, final int value)
+            throws IOException {
+        if (value <= 5)
+            code.writeByte(ICONST_0 + value);
+        else if (value <= Byte.MAX_VALUE) {
+            code.writeByte(BIPUSH);
+            code.writeByte(value);
+        } else {
+            code.writeByte(SIPUSH);
+            code.writeShort(value);
+        }
+    }
+
+    private final Activation              activation;
+    private final MethodHandles.Lookup    lookup  = MethodHandles.lookup();
+    @SuppressWarnings("serial")
+    private final Map<Long, MethodHandle> classes = new LinkedHashMap<Long, MethodHandle>(
+            16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<Long, MethodHandle> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    public Assembler(final Activation activation) {
+        this.activation = activation;
+    }
+
+    public Evaluator assemble(final Genome genome) {
+        final Network network = genome.network != null
+                && genome.network.activation == activation ? genome.network
+                        : new Network(genome.genes, activation);
+        final long fingerprint = genome.genes.fingerprint();
+        MethodHandle constructor;
+        synchronized (classes) {
+            constructor = classes.get(fingerprint);
+        }
+        if (constructor == null) {
+            final byte[] bytes;
+            try {
+                bytes = define(network);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (bytes == null)
+                return network.clone();
+            try {
+                final MethodHandles.Lookup hidden = lookup
+                        .defineHiddenClass(bytes, true);
+                constructor = hidden
+                        .findConstructor(hidden.lookupClass(),
+                                MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Evaluator.class));
+            } catch (final ClassFormatError e) {
+                return network.clone();
+            } catch (final IllegalAccessException | NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            synchronized (classes) {
+                classes.put(fingerprint, constructor);
+            }
+        }
+        try {
+            return (Evaluator) constructor.invokeExact();
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] define(final Network network) throws IOException {
+        final int size = network.values.length;
+        final int[] offsets = network.offsets;
+        final boolean[] stateful = new boolean[size];
+        for (int slot = INPUTS; slot < size; ++slot)
+            for (int edge = offsets[slot]; edge < offsets[slot + 1]; ++edge) {
+                final int source = network.sources[edge];
+                if (source >= slot && offsets[source] != offsets[source + 1])
+                    stateful[source] = true;
+            }
+
+        final Constants constants = new Constants();
+        final int thisClass = constants.klass(NAME);
+        final int superClass = constants.klass(OBJECT);
+        final int evaluator = constants.klass(EVALUATOR);
+        final int mode = constants.reference(CONSTANT_FIELDREF, ACTIVATION,
+                activation.name(), "L" + ACTIVATION + ";");
+        final int sigmoid = constants.reference(CONSTANT_METHODREF, NEURON,
+                "sigmoid", "(L" + ACTIVATION + ";D)D");
+        final int init = constants.reference(CONSTANT_METHODREF, OBJECT,
+                "<init>", "()V");
+        final int codeName = constants.utf8("Code");
+
+        final List<Integer> fields = new ArrayList<Integer>();
+        final int[] references = new int[size];
+        for (int slot = 0; slot < size; ++slot)
+            if (stateful[slot]) {
+                fields.add(slot);
+                references[slot] = constants.reference(CONSTANT_FIELDREF,
+                        NAME, "s" + slot, "D");
+            }
+
+        final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        final DataOutputStream code = new DataOutputStream(codeBytes);
+        for (int slot = 0; slot < INPUTS; ++slot) {
+            code.writeByte(ALOAD_1);
+            push(code, slot);
+            code.writeByte(DALOAD);
+            local(code, DSTORE, 3 + 2 * slot);
+        }
+        for (int slot = INPUTS; slot < size; ++slot)
+            if (stateful[slot]) {
+                code.writeByte(ALOAD_0);
+                code.writeByte(GETFIELD);
+                code.writeShort(references[slot]);
+                local(code, DSTORE, 3 + 2 * slot);
+            } else if (offsets[slot] == offsets[slot + 1]) {
+                code.writeByte(DCONST_0);
+                local(code, DSTORE, 3 + 2 * slot);
+            }
+        for (int slot = INPUTS; slot < size; ++slot) {
+            if (offsets[slot] == offsets[slot + 1])
+                continue;
+            code.writeByte(GETSTATIC);
+            code.writeShort(mode);
+            code.writeByte(DCONST_0);
+            for (int edge = offsets[slot]; edge < offsets[slot + 1]; ++edge) {
+                code.writeByte(LDC2_W);
+                code.writeShort(constants.number(network.weights[edge]));
+                local(code, DLOAD, 3 + 2 * network.sources[edge]);
+                code.writeByte(DMUL);
+                code.writeByte(DADD);
+            }
+            code.writeByte(INVOKESTATIC);
+            code.writeShort(sigmoid);
+            local(code, DSTORE, 3 + 2 * slot);
+        }
+        for (final int slot : fields) {
+            code.writeByte(ALOAD_0);
+            local(code, DLOAD, 3 + 2 * slot);
+            code.writeByte(PUTFIELD);
+            code.writeShort(references[slot]);
+        }
+        for (int i = 0; i < OUTPUTS; ++i) {
+            code.writeByte(ALOAD_2);
+            push(code, i);
+            local(code, DLOAD, 3 + 2 * (size - OUTPUTS + i));
+            code.writeByte(DASTORE);
+        }
+        code.writeByte(RETURN);
+        if (codeBytes.size() > MAX_CODE)
+            return null;
+
+        final int evaluateName = constants.utf8("evaluate");
+        final int evaluateType = constants.utf8("([D[D)V");
+        final int initName = constants.utf8("<init>");
+        final int initType = constants.utf8("()V");
+        final int fieldType = constants.utf8("D");
+        final int[] fieldNames = new int[fields.size()];
+        for (int i = 0; i < fields.size(); ++i)
+            fieldNames[i] = constants.utf8("s" + fields.get(i));
+        if (constants.count > 65535)
+            return null;
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(0);
+        out.writeShort(CLASS_VERSION);
+        out.writeShort(constants.count);
+        constants.out.flush();
+        constants.bytes.writeTo(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(evaluator);
+
+        out.writeShort(fields.size());
+        for (final int name : fieldNames) {
+            out.writeShort(ACC_PRIVATE);
+            out.writeShort(name);
+            out.writeShort(fieldType);
+            out.writeShort(0);
+        }
+
+        out.writeShort(2);
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(initName);
+        out.writeShort(initType);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + 5);
+        out.writeShort(1);
+        out.writeShort(1);
+        out.writeInt(5);
+        out.writeByte(ALOAD_0);
+        out.writeByte(INVOKESPECIAL);
+        out.writeShort(init);
+        out.writeByte(RETURN);
+        out.writeShort(0);
+        out.writeShort(0);
+
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(evaluateName);
+        out.writeShort(evaluateType);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + codeBytes.size());
+        out.writeShort(7);
+        out.writeShort(3 + 2 * size);
+        out.writeInt(codeBytes.size());
+        codeBytes.writeTo(out);
+        out.writeShort(0);
+        out.writeShort(0);
+
+        out.writeShort(0);
+        return bytes.toByteArray();
+    }
+}
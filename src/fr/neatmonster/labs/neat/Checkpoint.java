@@ -0,0 +1,219 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class Checkpoint {
+    public static final int MAGIC   = 0x4e454154;
+    public static final int VERSION = 7;
+
+    private static final int SETTINGS_BYTES = 4 + 5 * 8 + 7 * 8 + 4 + 4;
+    private static final int GENE_BYTES     = 4 + 4 + 4 + 8 + 1;
+    private static final int GENOME_BYTES   = 8 + 4 + 4 + 7 * 8 + 4 + 4;
+    private static final int SPECIES_BYTES  = 8 + 8 + 4 + 4;
+
+    private static Random random(final byte[] state) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(state))) {
+            return (Random) in.readObject();
+        } catch (final ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public static Checkpoint read(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel
+                    .map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            if (buffer.getInt() != MAGIC)
+                throw new IOException(path + " is not a checkpoint");
+            final int version = buffer.getInt();
+            if (version < 1 || version > VERSION)
+                throw new IOException("Unsupported checkpoint version "
+                        + version + " in " + path);
+
+            final int population = buffer.getInt();
+            final int generation = buffer.getInt();
+            final int innovation = buffer.getInt();
+            final int neuron = version >= 2 ? buffer.getInt() : INPUTS;
+            final double maxFitness = buffer.getDouble();
+            final byte[] state = new byte[buffer.getInt()];
+            buffer.get(state);
+            Random simulation = null;
+            if (version >= 4) {
+                final byte[] tubes = new byte[buffer.getInt()];
+                buffer.get(tubes);
+                simulation = random(tubes);
+            }
+
+            final Pool pool = new Pool(population, random(state));
+            pool.generation = generation;
+            pool.innovation = innovation;
+            pool.neuron = neuron;
+            pool.maxFitness = maxFitness;
+            if (version >= 3) {
+                pool.staleSpecies = buffer.getInt();
+                pool.deltaDisjoint = buffer.getDouble();
+                pool.deltaWeights = buffer.getDouble();
+                pool.deltaThreshold = buffer.getDouble();
+                pool.perturbation = buffer.getDouble();
+                pool.crossover = buffer.getDouble();
+                for (int k = 0; k < 7; ++k)
+                    pool.mutationRates[k] = buffer.getDouble();
+            }
+            if (version >= 5)
+                pool.activation = Activation.values()[buffer.getInt()];
+            if (version >= 6)
+                pool.maxSpecies = buffer.getInt();
+            final int count = buffer.getInt();
+            for (int i = 0; i < count; ++i) {
+                final Species species = new Species(pool);
+                species.topFitness = buffer.getDouble();
+                species.averageFitness = buffer.getDouble();
+                species.staleness = buffer.getInt();
+                final int genomes = buffer.getInt();
+                for (int j = 0; j < genomes; ++j) {
+                    final Genome genome = new Genome(pool);
+                    genome.fitness = buffer.getDouble();
+                    genome.maxNeuron = buffer.getInt();
+                    genome.globalRank = buffer.getInt();
+                    for (int k = 0; k < 7; ++k)
+                        genome.mutationRates[k] = buffer.getDouble();
+                    final int genes = buffer.getInt();
+                    for (int k = 0; k < genes; ++k) {
+                        final int gene = buffer.getInt();
+                        final int input = buffer.getInt();
+                        final int output = buffer.getInt();
+                        final double weight = buffer.getDouble();
+                        genome.genes.add(input, output, weight,
+                                buffer.get() != 0, gene);
+                    }
+                    if (version >= 4)
+                        for (int k = 0; k < genes; ++k)
+                            genome.genes.position(k, buffer.getInt());
+                    if (version >= 7) {
+                        final int hidden = buffer.getInt();
+                        for (int k = 0; k < hidden; ++k)
+                            genome.genes.hidden(k, buffer.getInt());
+                    }
+                    species.genomes.add(genome);
+                    if (version < 2)
+                        pool.neuron = Math.max(pool.neuron,
+                                genome.maxNeuron);
+                }
+                pool.species.add(species);
+            }
+            return new Checkpoint(pool, simulation);
+        }
+    }
+
+    private static byte[] state(final Random rnd) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(rnd);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static void write(final Pool pool, final Random simulation,
+            final Path path) throws IOException {
+        final byte[] state = state(pool.rnd);
+        final byte[] tubes = state(simulation);
+
+        long size = 4 + 4 + 4 + 4 + 4 + 4 + 8 + 4 + state.length + 4
+                + tubes.length + SETTINGS_BYTES + 4;
+        for (final Species species : pool.species) {
+            size += SPECIES_BYTES;
+            for (final Genome genome : species.genomes)
+                size += GENOME_BYTES
+                        + (long) (GENE_BYTES + 4) * genome.genes.size()
+                        + 4L * genome.genes.hiddenCount();
+        }
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Pool too large to checkpoint");
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(pool.population);
+        buffer.putInt(pool.generation);
+        buffer.putInt(pool.innovation);
+        buffer.putInt(pool.neuron);
+        buffer.putDouble(pool.maxFitness);
+        buffer.putInt(state.length);
+        buffer.put(state);
+        buffer.putInt(tubes.length);
+        buffer.put(tubes);
+        buffer.putInt(pool.staleSpecies);
+        buffer.putDouble(pool.deltaDisjoint);
+        buffer.putDouble(pool.deltaWeights);
+        buffer.putDouble(pool.deltaThreshold);
+        buffer.putDouble(pool.perturbation);
+        buffer.putDouble(pool.crossover);
+        for (int i = 0; i < 7; ++i)
+            buffer.putDouble(pool.mutationRates[i]);
+        buffer.putInt(pool.activation.ordinal());
+        buffer.putInt(pool.maxSpecies);
+        buffer.putInt(pool.species.size());
+        for (final Species species : pool.species) {
+            buffer.putDouble(species.topFitness);
+            buffer.putDouble(species.averageFitness);
+            buffer.putInt(species.staleness);
+            buffer.putInt(species.genomes.size());
+            for (final Genome genome : species.genomes) {
+                buffer.putDouble(genome.fitness);
+                buffer.putInt(genome.maxNeuron);
+                buffer.putInt(genome.globalRank);
+                for (int i = 0; i < 7; ++i)
+                    buffer.putDouble(genome.mutationRates[i]);
+                buffer.putInt(genome.genes.size());
+                for (int i = 0; i < genome.genes.size(); ++i) {
+                    buffer.putInt(genome.genes.innovation(i));
+                    buffer.putInt(genome.genes.input(i));
+                    buffer.putInt(genome.genes.output(i));
+                    buffer.putDouble(genome.genes.weight(i));
+                    buffer.put((byte) (genome.genes.enabled(i) ? 1 : 0));
+                }
+                for (int i = 0; i < genome.genes.size(); ++i)
+                    buffer.putInt(genome.genes.position(i));
+                buffer.putInt(genome.genes.hiddenCount());
+                for (int i = 0; i < genome.genes.hiddenCount(); ++i)
+                    buffer.putInt(genome.genes.hidden(i));
+            }
+        }
+        buffer.flip();
+
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public final Pool   pool;
+    public final Random simulation;
+
+    private Checkpoint(final Pool pool, final Random simulation) {
+        this.pool = pool;
+        this.simulation = simulation;
+    }
+}
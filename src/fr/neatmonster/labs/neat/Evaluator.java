@@ -0,0 +1,5 @@
+package fr.neatmonster.labs.neat;
+
+public interface Evaluator {
+    public void evaluate(double[] input, double[] output);
+}
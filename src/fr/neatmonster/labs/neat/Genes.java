@@ -0,0 +1,428 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+public class Genes {
+    private static final long EMPTY = -1L;
+
+    private static long link(final int input, final int output) {
+        return (long) input << 32 | output & 0xffffffffL;
+    }
+
+    private static long[] newLinks(final int capacity) {
+        final long[] links = new long[capacity];
+        Arrays.fill(links, EMPTY);
+        return links;
+    }
+
+    private static int[] newTable(final int capacity) {
+        final int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+        return table;
+    }
+
+    private static int slot(final long link, final int mask) {
+        return (int) (link * 0x9e3779b97f4a7c15L >>> 32) & mask;
+    }
+
+    private int[]    inputs      = new int[8];
+    private int[]    outputs     = new int[8];
+    private double[] weights     = new double[8];
+    private int[]    innovations = new int[8];
+    private BitSet   enabled     = new BitSet();
+    private int      size        = 0;
+    private long     fingerprint = 0L;
+    private boolean  hashed      = false;
+
+    private long[] links     = newLinks(16);
+    private int    linkCount = 0;
+
+    private int[] hidden      = new int[8];
+    private int[] uses        = new int[8];
+    private int[] table       = newTable(16);
+    private int   hiddenCount = 0;
+
+    private int[] enabledGenes  = new int[8];
+    private int   enabledCount  = 0;
+    private int[] disabledGenes = new int[8];
+    private int   disabledCount = 0;
+    private int[] positions     = new int[8];
+
+    public void add(final Genes genes, final int i) {
+        add(genes.inputs[i], genes.outputs[i], genes.weights[i],
+                genes.enabled.get(i), genes.innovations[i]);
+    }
+
+    public void add(final int input, final int output, final double weight,
+            final boolean enabled, final int innovation) {
+        grow();
+        inputs[size] = input;
+        outputs[size] = output;
+        weights[size] = weight;
+        innovations[size] = innovation;
+        this.enabled.set(size, enabled);
+        index(size);
+        list(size);
+        ++size;
+        hashed = false;
+    }
+
+    public boolean contains(final int input, final int output) {
+        return find(link(input, output)) >= 0;
+    }
+
+    public void copy(final Genes genes) {
+        final int capacity = Math.max(genes.size, 8);
+        inputs = Arrays.copyOf(genes.inputs, capacity);
+        outputs = Arrays.copyOf(genes.outputs, capacity);
+        weights = Arrays.copyOf(genes.weights, capacity);
+        innovations = Arrays.copyOf(genes.innovations, capacity);
+        enabled = (BitSet) genes.enabled.clone();
+        size = genes.size;
+        fingerprint = genes.fingerprint;
+        hashed = genes.hashed;
+
+        links = genes.links.clone();
+        linkCount = genes.linkCount;
+        hidden = genes.hidden.clone();
+        uses = genes.uses.clone();
+        table = genes.table.clone();
+        hiddenCount = genes.hiddenCount;
+        enabledGenes = genes.enabledGenes.clone();
+        enabledCount = genes.enabledCount;
+        disabledGenes = genes.disabledGenes.clone();
+        disabledCount = genes.disabledCount;
+        positions = Arrays.copyOf(genes.positions, capacity);
+    }
+
+    public int count(final boolean enabled) {
+        return enabled ? enabledCount : disabledCount;
+    }
+
+    public boolean enabled(final int i) {
+        return enabled.get(i);
+    }
+
+    public long fingerprint() {
+        if (!hashed) {
+            long hash = enabledCount;
+            for (int i = 0; i < size; ++i) {
+                if (!enabled.get(i))
+                    continue;
+                hash = (hash ^ inputs[i]) * 0x9e3779b97f4a7c15L;
+                hash = (hash ^ outputs[i]) * 0x9e3779b97f4a7c15L;
+                hash = (hash ^ Double.doubleToLongBits(weights[i]))
+                        * 0x9e3779b97f4a7c15L;
+            }
+            hash = (hash ^ hash >>> 30) * 0xbf58476d1ce4e5b9L;
+            hash = (hash ^ hash >>> 27) * 0x94d049bb133111ebL;
+            fingerprint = hash ^ hash >>> 31;
+            hashed = true;
+        }
+        return fingerprint;
+    }
+
+    public int gene(final boolean enabled, final int k) {
+        return enabled ? enabledGenes[k] : disabledGenes[k];
+    }
+
+    public int hidden(final int k) {
+        return hidden[k];
+    }
+
+    void hidden(final int k, final int neuron) {
+        final int slot = find(neuron);
+        final int other = find(hidden[k]);
+        final int position = table[slot];
+        final int count = uses[position];
+        hidden[position] = hidden[k];
+        uses[position] = uses[k];
+        table[other] = position;
+        hidden[k] = neuron;
+        uses[k] = count;
+        table[slot] = k;
+    }
+
+    public int hiddenCount() {
+        return hiddenCount;
+    }
+
+    public int innovation(final int i) {
+        return innovations[i];
+    }
+
+    public void insert(final int input, final int output, final double weight,
+            final boolean enabled, final int innovation) {
+        int i = size;
+        while (i > 0 && innovations[i - 1] > innovation)
+            --i;
+        if (i == size) {
+            add(input, output, weight, enabled, innovation);
+            return;
+        }
+
+        grow();
+        System.arraycopy(inputs, i, inputs, i + 1, size - i);
+        System.arraycopy(outputs, i, outputs, i + 1, size - i);
+        System.arraycopy(weights, i, weights, i + 1, size - i);
+        System.arraycopy(innovations, i, innovations, i + 1, size - i);
+        System.arraycopy(positions, i, positions, i + 1, size - i);
+        for (int j = size; j > i; --j)
+            this.enabled.set(j, this.enabled.get(j - 1));
+        for (int k = 0; k < enabledCount; ++k)
+            if (enabledGenes[k] >= i)
+                ++enabledGenes[k];
+        for (int k = 0; k < disabledCount; ++k)
+            if (disabledGenes[k] >= i)
+                ++disabledGenes[k];
+        inputs[i] = input;
+        outputs[i] = output;
+        weights[i] = weight;
+        innovations[i] = innovation;
+        this.enabled.set(i, enabled);
+        index(i);
+        list(i);
+        ++size;
+        hashed = false;
+    }
+
+    public int input(final int i) {
+        return inputs[i];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isSorted() {
+        for (int i = 1; i < size; ++i)
+            if (innovations[i - 1] >= innovations[i])
+                return false;
+        return true;
+    }
+
+    public int output(final int i) {
+        return outputs[i];
+    }
+
+    int position(final int i) {
+        return positions[i];
+    }
+
+    void position(final int i, final int position) {
+        positions[i] = position;
+        if (enabled.get(i))
+            enabledGenes[position] = i;
+        else
+            disabledGenes[position] = i;
+    }
+
+    public void set(final int i, final Genes genes, final int j) {
+        if (inputs[i] != genes.inputs[j] || outputs[i] != genes.outputs[j]) {
+            unindex(i);
+            inputs[i] = genes.inputs[j];
+            outputs[i] = genes.outputs[j];
+            index(i);
+        }
+        weights[i] = genes.weights[j];
+        innovations[i] = genes.innovations[j];
+        setEnabled(i, genes.enabled.get(j));
+        hashed = false;
+    }
+
+    public void setEnabled(final int i, final boolean enabled) {
+        if (this.enabled.get(i) == enabled)
+            return;
+        if (enabled) {
+            final int last = disabledGenes[--disabledCount];
+            disabledGenes[positions[i]] = last;
+            positions[last] = positions[i];
+        } else {
+            final int last = enabledGenes[--enabledCount];
+            enabledGenes[positions[i]] = last;
+            positions[last] = positions[i];
+        }
+        this.enabled.set(i, enabled);
+        list(i);
+        hashed = false;
+    }
+
+    public void setWeight(final int i, final double weight) {
+        weights[i] = weight;
+        hashed = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void sort() {
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; ++i)
+            order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return innovations[o1] - innovations[o2];
+            }
+        });
+        final Genes sorted = new Genes();
+        for (final int i : order)
+            sorted.add(this, i);
+        copy(sorted);
+    }
+
+    public double weight(final int i) {
+        return weights[i];
+    }
+
+    private int find(final int neuron) {
+        final int mask = table.length - 1;
+        int slot = slot(neuron, mask);
+        while (table[slot] >= 0) {
+            if (hidden[table[slot]] == neuron)
+                return slot;
+            slot = slot + 1 & mask;
+        }
+        return -1;
+    }
+
+    private int find(final long link) {
+        final int mask = links.length - 1;
+        int slot = slot(link, mask);
+        while (links[slot] != EMPTY) {
+            if (links[slot] == link)
+                return slot;
+            slot = slot + 1 & mask;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        if (size < inputs.length)
+            return;
+        inputs = Arrays.copyOf(inputs, size * 2);
+        outputs = Arrays.copyOf(outputs, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+        innovations = Arrays.copyOf(innovations, size * 2);
+        positions = Arrays.copyOf(positions, size * 2);
+    }
+
+    private void hide(final int neuron) {
+        if (neuron < INPUTS + OUTPUTS)
+            return;
+        final int found = find(neuron);
+        if (found >= 0) {
+            ++uses[table[found]];
+            return;
+        }
+        if (hiddenCount == hidden.length) {
+            hidden = Arrays.copyOf(hidden, hiddenCount * 2);
+            uses = Arrays.copyOf(uses, hiddenCount * 2);
+        }
+        hidden[hiddenCount] = neuron;
+        uses[hiddenCount] = 1;
+        if (2 * (hiddenCount + 1) > table.length) {
+            table = newTable(table.length * 2);
+            for (int k = 0; k < hiddenCount; ++k)
+                place(k);
+        }
+        place(hiddenCount++);
+    }
+
+    private void index(final int i) {
+        final long link = link(inputs[i], outputs[i]);
+        if (2 * (linkCount + 1) > links.length) {
+            final long[] old = links;
+            links = newLinks(old.length * 2);
+            for (final long entry : old)
+                if (entry != EMPTY)
+                    place(entry);
+        }
+        place(link);
+        ++linkCount;
+        hide(inputs[i]);
+        hide(outputs[i]);
+    }
+
+    private void list(final int i) {
+        if (enabled.get(i)) {
+            if (enabledCount == enabledGenes.length)
+                enabledGenes = Arrays.copyOf(enabledGenes, enabledCount * 2);
+            positions[i] = enabledCount;
+            enabledGenes[enabledCount++] = i;
+        } else {
+            if (disabledCount == disabledGenes.length)
+                disabledGenes = Arrays.copyOf(disabledGenes,
+                        disabledCount * 2);
+            positions[i] = disabledCount;
+            disabledGenes[disabledCount++] = i;
+        }
+    }
+
+    private void place(final int position) {
+        final int mask = table.length - 1;
+        int slot = slot(hidden[position], mask);
+        while (table[slot] >= 0)
+            slot = slot + 1 & mask;
+        table[slot] = position;
+    }
+
+    private void place(final long link) {
+        final int mask = links.length - 1;
+        int slot = slot(link, mask);
+        while (links[slot] != EMPTY)
+            slot = slot + 1 & mask;
+        links[slot] = link;
+    }
+
+    private void unhide(final int neuron) {
+        if (neuron < INPUTS + OUTPUTS)
+            return;
+        int hole = find(neuron);
+        final int position = table[hole];
+        if (--uses[position] > 0)
+            return;
+        final int mask = table.length - 1;
+        int slot = hole + 1 & mask;
+        while (table[slot] >= 0) {
+            final int home = slot(hidden[table[slot]], mask);
+            if ((slot - home & mask) >= (slot - hole & mask)) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+            slot = slot + 1 & mask;
+        }
+        table[hole] = -1;
+        final int last = --hiddenCount;
+        if (position < last) {
+            table[find(hidden[last])] = position;
+            hidden[position] = hidden[last];
+            uses[position] = uses[last];
+        }
+    }
+
+    private void unindex(final int i) {
+        int hole = find(link(inputs[i], outputs[i]));
+        final int mask = links.length - 1;
+        int slot = hole + 1 & mask;
+        while (links[slot] != EMPTY) {
+            final int home = slot(links[slot], mask);
+            if ((slot - home & mask) >= (slot - hole & mask)) {
+                links[hole] = links[slot];
+                hole = slot;
+            }
+            slot = slot + 1 & mask;
+        }
+        links[hole] = EMPTY;
+        --linkCount;
+        unhide(inputs[i]);
+        unhide(outputs[i]);
+    }
+}
@@ -1,131 +1,78 @@
 package fr.neatmonster.labs.neat;
 
-import static fr.neatmonster.labs.neat.Pool.BIAS_MUTATION;
-import static fr.neatmonster.labs.neat.Pool.CONN_MUTATION;
-import static fr.neatmonster.labs.neat.Pool.DELTA_DISJOINT;
-import static fr.neatmonster.labs.neat.Pool.DELTA_THRESHOLD;
-import static fr.neatmonster.labs.neat.Pool.DELTA_WEIGHTS;
-import static fr.neatmonster.labs.neat.Pool.DISABLE_MUTATION;
-import static fr.neatmonster.labs.neat.Pool.ENABLE_MUTATION;
 import static fr.neatmonster.labs.neat.Pool.INPUTS;
-import static fr.neatmonster.labs.neat.Pool.LINK_MUTATION;
-import static fr.neatmonster.labs.neat.Pool.NODE_MUTATION;
 import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
-import static fr.neatmonster.labs.neat.Pool.PERTURBATION;
-import static fr.neatmonster.labs.neat.Pool.STEP_SIZE;
-import static fr.neatmonster.labs.neat.Pool.rnd;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+
+import java.util.random.RandomGenerator;
 
 public class Genome {
-    public final List<Synapse>  genes         = new ArrayList<Synapse>();
-    public double               fitness       = 0.0;
-    public int                  maxNeuron     = 0;
-    public int                  globalRank    = 0;
-    public final double[]       mutationRates = new double[] { CONN_MUTATION,
-            LINK_MUTATION, BIAS_MUTATION, NODE_MUTATION, ENABLE_MUTATION,
-            DISABLE_MUTATION, STEP_SIZE };
-    public Map<Integer, Neuron> network       = null;
+    public final Pool     pool;
+    public final Genes    genes         = new Genes();
+    public double         fitness       = 0.0;
+    public int            maxNeuron     = 0;
+    public int            globalRank    = 0;
+    public final double[] mutationRates;
+    public Network        network       = null;
+
+    public Genome(final Pool pool) {
+        this.pool = pool;
+        mutationRates = pool.mutationRates.clone();
+    }
 
     @Override
     public Genome clone() {
-        final Genome genome = new Genome();
-        for (final Synapse gene : genes)
-            genome.genes.add(gene.clone());
+        final Genome genome = new Genome(pool);
+        genome.genes.copy(genes);
         genome.maxNeuron = maxNeuron;
         for (int i = 0; i < 7; ++i)
             genome.mutationRates[i] = mutationRates[i];
         return genome;
     }
 
-    public boolean containsLink(final Synapse link) {
-        for (final Synapse gene : genes)
-            if (gene.input == link.input && gene.output == link.output)
-                return true;
-        return false;
+    public boolean containsLink(final int input, final int output) {
+        return genes.contains(input, output);
     }
 
     public double disjoint(final Genome genome) {
         double disjointGenes = 0.0;
-        search: for (final Synapse gene : genes) {
-            for (final Synapse otherGene : genome.genes)
-                if (gene.innovation == otherGene.innovation)
-                    continue search;
-            ++disjointGenes;
+        int j = 0;
+        for (int i = 0; i < genes.size(); ++i) {
+            final int innovation = genes.innovation(i);
+            while (j < genome.genes.size()
+                    && genome.genes.innovation(j) < innovation)
+                ++j;
+            if (j == genome.genes.size()
+                    || genome.genes.innovation(j) != innovation)
+                ++disjointGenes;
         }
         return disjointGenes / Math.max(genes.size(), genome.genes.size());
     }
 
-    public double[] evaluateNetwork(final double[] input) {
-        for (int i = 0; i < INPUTS; ++i)
-            network.get(i).value = input[i];
-
-        for (final Entry<Integer, Neuron> entry : network.entrySet()) {
-            if (entry.getKey() < INPUTS + OUTPUTS)
-                continue;
-            final Neuron neuron = entry.getValue();
-            double sum = 0.0;
-            for (final Synapse incoming : neuron.inputs) {
-                final Neuron other = network.get(incoming.input);
-                sum += incoming.weight * other.value;
-            }
-
-            if (!neuron.inputs.isEmpty())
-                neuron.value = Neuron.sigmoid(sum);
-        }
-
-        for (final Entry<Integer, Neuron> entry : network.entrySet()) {
-            if (entry.getKey() < INPUTS || entry.getKey() >= INPUTS + OUTPUTS)
-                continue;
-            final Neuron neuron = entry.getValue();
-            double sum = 0.0;
-            for (final Synapse incoming : neuron.inputs) {
-                final Neuron other = network.get(incoming.input);
-                sum += incoming.weight * other.value;
-            }
-
-            if (!neuron.inputs.isEmpty())
-                neuron.value = Neuron.sigmoid(sum);
-        }
+    public double distance(final Genome genome) {
+        final double dd = pool.deltaDisjoint * disjoint(genome);
+        final double dw = pool.deltaWeights * weights(genome);
+        final double distance = dd + dw;
+        return Double.isNaN(distance) ? Double.POSITIVE_INFINITY : distance;
+    }
 
-        final double[] output = new double[OUTPUTS];
-        for (int i = 0; i < OUTPUTS; ++i)
-            output[i] = network.get(INPUTS + i).value;
-        return output;
+    public void evaluateNetwork(final double[] input, final double[] output) {
+        network.evaluate(input, output);
     }
 
     public void generateNetwork() {
-        network = new HashMap<Integer, Neuron>();
-        for (int i = 0; i < INPUTS; ++i)
-            network.put(i, new Neuron());
-        for (int i = 0; i < OUTPUTS; ++i)
-            network.put(INPUTS + i, new Neuron());
-
-        Collections.sort(genes, new Comparator<Synapse>() {
+        network = new Network(genes, pool.activation);
+    }
 
-            @Override
-            public int compare(final Synapse o1, final Synapse o2) {
-                return o1.output - o2.output;
-            }
-        });
-        for (final Synapse gene : genes)
-            if (gene.enabled) {
-                if (!network.containsKey(gene.output))
-                    network.put(gene.output, new Neuron());
-                final Neuron neuron = network.get(gene.output);
-                neuron.inputs.add(gene);
-                if (!network.containsKey(gene.input))
-                    network.put(gene.input, new Neuron());
-            }
+    private void insert(final int input, final int output,
+            final double weight, final int innovation) {
+        if (pool.breeding())
+            genes.add(input, output, weight, true, innovation);
+        else
+            genes.insert(input, output, weight, true, innovation);
     }
 
     public void mutate() {
+        final RandomGenerator rnd = pool.random();
         for (int i = 0; i < 7; ++i)
             mutationRates[i] *= rnd.nextBoolean() ? 0.95 : 1.05263;
 
@@ -169,111 +116,95 @@ public class Genome {
     }
 
     public void mutateEnableDisable(final boolean enable) {
-        final List<Synapse> candidates = new ArrayList<Synapse>();
-        for (final Synapse gene : genes)
-            if (gene.enabled != enable)
-                candidates.add(gene);
-
-        if (candidates.isEmpty())
+        final RandomGenerator rnd = pool.random();
+        final int candidates = genes.count(!enable);
+        if (candidates == 0)
             return;
 
-        final Synapse gene = candidates.get(rnd.nextInt(candidates.size()));
-        gene.enabled = !gene.enabled;
+        genes.setEnabled(genes.gene(!enable, rnd.nextInt(candidates)),
+                enable);
     }
 
     public void mutateLink(final boolean forceBias) {
-        final int neuron1 = randomNeuron(false, true);
+        final RandomGenerator rnd = pool.random();
+        int neuron1 = randomNeuron(false, true);
         final int neuron2 = randomNeuron(true, false);
 
-        final Synapse newLink = new Synapse();
-        newLink.input = neuron1;
-        newLink.output = neuron2;
-
         if (forceBias)
-            newLink.input = INPUTS - 1;
+            neuron1 = INPUTS - 1;
 
-        if (containsLink(newLink))
+        if (containsLink(neuron1, neuron2))
             return;
 
-        newLink.innovation = ++Pool.innovation;
-        newLink.weight = rnd.nextDouble() * 4.0 - 2.0;
-
-        genes.add(newLink);
+        final int innovation = pool.link(neuron1, neuron2);
+        insert(neuron1, neuron2, rnd.nextDouble() * 4.0 - 2.0, innovation);
     }
 
     public void mutateNode() {
+        final RandomGenerator rnd = pool.random();
         if (genes.isEmpty())
             return;
 
-        final Synapse gene = genes.get(rnd.nextInt(genes.size()));
-        if (!gene.enabled)
+        final int gene = rnd.nextInt(genes.size());
+        if (!genes.enabled(gene))
             return;
-        gene.enabled = false;
-
-        ++maxNeuron;
-
-        final Synapse gene1 = gene.clone();
-        gene1.output = maxNeuron;
-        gene1.weight = 1.0;
-        gene1.innovation = ++Pool.innovation;
-        gene1.enabled = true;
-        genes.add(gene1);
-
-        final Synapse gene2 = gene.clone();
-        gene2.input = maxNeuron;
-        gene2.innovation = ++Pool.innovation;
-        gene2.enabled = true;
-        genes.add(gene2);
+        genes.setEnabled(gene, false);
+
+        final int input = genes.input(gene);
+        final int output = genes.output(gene);
+        int neuron = pool.split(genes.innovation(gene));
+        if (genes.contains(input, neuron) || genes.contains(neuron, output))
+            neuron = pool.neuron();
+        maxNeuron = Math.max(maxNeuron, neuron);
+
+        final double weight = genes.weight(gene);
+        insert(input, neuron, 1.0, pool.link(input, neuron));
+        insert(neuron, output, weight, pool.link(neuron, output));
     }
 
     public void mutatePoint() {
-        for (final Synapse gene : genes)
-            if (rnd.nextDouble() < PERTURBATION)
-                gene.weight += rnd.nextDouble() * mutationRates[6] * 2.0
-                        - mutationRates[6];
+        final RandomGenerator rnd = pool.random();
+        for (int i = 0; i < genes.size(); ++i)
+            if (rnd.nextDouble() < pool.perturbation)
+                genes.setWeight(i, genes.weight(i) + rnd.nextDouble()
+                        * mutationRates[6] * 2.0 - mutationRates[6]);
             else
-                gene.weight = rnd.nextDouble() * 4.0 - 2.0;
+                genes.setWeight(i, rnd.nextDouble() * 4.0 - 2.0);
     }
 
     public int randomNeuron(final boolean nonInput, final boolean nonOutput) {
-        final List<Integer> neurons = new ArrayList<Integer>();
-
-        if (!nonInput)
-            for (int i = 0; i < INPUTS; ++i)
-                neurons.add(i);
-
-        if (!nonOutput)
-            for (int i = 0; i < OUTPUTS; ++i)
-                neurons.add(INPUTS + i);
-
-        for (final Synapse gene : genes) {
-            if ((!nonInput || gene.input >= INPUTS)
-                    && (!nonOutput || gene.input >= INPUTS + OUTPUTS))
-                neurons.add(gene.input);
-            if ((!nonInput || gene.output >= INPUTS)
-                    && (!nonOutput || gene.output >= INPUTS + OUTPUTS))
-                neurons.add(gene.output);
-        }
-
-        return neurons.get(rnd.nextInt(neurons.size()));
+        final RandomGenerator rnd = pool.random();
+        final int inputs = nonInput ? 0 : INPUTS;
+        final int outputs = nonOutput ? 0 : OUTPUTS;
+
+        int neuron = rnd.nextInt(inputs + outputs + genes.hiddenCount());
+        if (neuron < inputs)
+            return neuron;
+        neuron -= inputs;
+        if (neuron < outputs)
+            return INPUTS + neuron;
+        return genes.hidden(neuron - outputs);
     }
 
     public boolean sameSpecies(final Genome genome) {
-        final double dd = DELTA_DISJOINT * disjoint(genome);
-        final double dw = DELTA_WEIGHTS * weights(genome);
-        return dd + dw < DELTA_THRESHOLD;
+        return distance(genome) < pool.deltaThreshold;
     }
 
     public double weights(final Genome genome) {
         double sum = 0.0;
         double coincident = 0.0;
-        search: for (final Synapse gene : genes)
-            for (final Synapse otherGene : genome.genes)
-                if (gene.innovation == otherGene.innovation) {
-                    sum += Math.abs(gene.weight - otherGene.weight);
-                    ++coincident;
-                    continue search;
-                }
+        int j = 0;
+        for (int i = 0; i < genes.size(); ++i) {
+            final int innovation = genes.innovation(i);
+            while (j < genome.genes.size()
+                    && genome.genes.innovation(j) < innovation)
+                ++j;
+            if (j < genome.genes.size()
+                    && genome.genes.innovation(j) == innovation) {
+                sum += Math.abs(genes.weight(i) - genome.genes.weight(j));
+                ++coincident;
+            }
+        }
         return sum / coincident;
     }
 }
@@ -0,0 +1,6 @@
+package fr.neatmonster.labs.neat;
+
+interface Kernel {
+    public void accumulate(double[] sums, double[] weights, int weight,
+            double[] values, int value, int lanes);
+}
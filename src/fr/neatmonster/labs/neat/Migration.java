@@ -0,0 +1,139 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class Migration {
+    private final List<Pool>               pools;
+    private final List<Map<Long, Integer>> locals  = new ArrayList<Map<Long, Integer>>();
+    private final List<Map<Integer, Long>> origins = new ArrayList<Map<Integer, Long>>();
+    private final List<Map<Long, Integer>> neurons = new ArrayList<Map<Long, Integer>>();
+    private final List<Map<Integer, Long>> sources = new ArrayList<Map<Integer, Long>>();
+
+    public Migration(final List<Pool> pools) {
+        this.pools = pools;
+        for (int i = 0; i < pools.size(); ++i) {
+            locals.add(new HashMap<Long, Integer>());
+            origins.add(new HashMap<Integer, Long>());
+            neurons.add(new HashMap<Long, Integer>());
+            sources.add(new HashMap<Integer, Long>());
+        }
+    }
+
+    public Genome immigrant(final int from, final int to, final Genome genome) {
+        final Genome immigrant = new Genome(pools.get(to));
+        immigrant.maxNeuron = INPUTS;
+        for (int i = 0; i < genome.genes.size(); ++i) {
+            final int input = neuron(from, to, genome.genes.input(i));
+            final int output = neuron(from, to, genome.genes.output(i));
+            immigrant.genes.add(input, output, genome.genes.weight(i),
+                    genome.genes.enabled(i), translate(to,
+                            origin(from, genome.genes.innovation(i))));
+            immigrant.maxNeuron = Math.max(immigrant.maxNeuron,
+                    Math.max(input, output));
+        }
+        immigrant.genes.sort();
+        immigrant.fitness = genome.fitness;
+        for (int i = 0; i < 7; ++i)
+            immigrant.mutationRates[i] = genome.mutationRates[i];
+        return immigrant;
+    }
+
+    public void migrate(final int count) {
+        final List<List<Genome>> rankings = new ArrayList<List<Genome>>();
+        final List<List<Genome>> emigrants = new ArrayList<List<Genome>>();
+        for (final Pool pool : pools) {
+            final List<Genome> genomes = new ArrayList<Genome>();
+            for (final Species species : pool.species)
+                genomes.addAll(species.genomes);
+            Collections.sort(genomes, new Comparator<Genome>() {
+
+                @Override
+                public int compare(final Genome o1, final Genome o2) {
+                    final double cmp = o2.fitness - o1.fitness;
+                    return cmp == 0.0 ? 0 : cmp > 0.0 ? 1 : -1;
+                }
+            });
+            rankings.add(genomes);
+            emigrants.add(genomes.subList(0, Math.min(count, genomes.size())));
+        }
+
+        final List<List<Genome>> immigrants = new ArrayList<List<Genome>>();
+        for (int from = 0; from < pools.size(); ++from) {
+            final int to = (from + 1) % pools.size();
+            final List<Genome> arrivals = new ArrayList<Genome>();
+            if (to != from)
+                for (final Genome genome : emigrants.get(from))
+                    arrivals.add(immigrant(from, to, genome));
+            immigrants.add(arrivals);
+        }
+
+        for (int from = 0; from < pools.size(); ++from) {
+            final int to = (from + 1) % pools.size();
+            final List<Genome> arrivals = immigrants.get(from);
+            if (arrivals.isEmpty())
+                continue;
+            final List<Genome> ranking = rankings.get(to);
+            final Set<Genome> replaced = Collections
+                    .newSetFromMap(new IdentityHashMap<Genome, Boolean>());
+            replaced.addAll(ranking.subList(
+                    Math.max(ranking.size() - arrivals.size(), 0),
+                    ranking.size()));
+            replace(pools.get(to), replaced);
+            for (final Genome immigrant : arrivals)
+                pools.get(to).addToSpecies(immigrant);
+        }
+    }
+
+    private int neuron(final int from, final int to, final int neuron) {
+        if (neuron < INPUTS + OUTPUTS)
+            return neuron;
+        final Long source = sources.get(from).get(neuron);
+        final long origin = source != null ? source
+                : (long) from << 32 | neuron;
+        if (origin >>> 32 == to)
+            return (int) origin;
+        Integer local = neurons.get(to).get(origin);
+        if (local == null) {
+            local = ++pools.get(to).neuron;
+            neurons.get(to).put(origin, local);
+            sources.get(to).put(local, origin);
+        }
+        return local;
+    }
+
+    private void replace(final Pool pool, final Set<Genome> replaced) {
+        for (int k = pool.species.size() - 1; k >= 0; --k) {
+            final Species species = pool.species.get(k);
+            species.genomes.removeAll(replaced);
+            if (species.genomes.isEmpty())
+                pool.species.remove(k);
+        }
+    }
+
+    private long origin(final int island, final int innovation) {
+        final Long origin = origins.get(island).get(innovation);
+        return origin != null ? origin : (long) island << 32 | innovation;
+    }
+
+    private int translate(final int island, final long origin) {
+        if (origin >>> 32 == island)
+            return (int) origin;
+        Integer innovation = locals.get(island).get(origin);
+        if (innovation == null) {
+            innovation = ++pools.get(island).innovation;
+            locals.get(island).put(origin, innovation);
+            origins.get(island).put(innovation, origin);
+        }
+        return innovation;
+    }
+}
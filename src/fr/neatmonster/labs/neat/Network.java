@@ -0,0 +1,207 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class Network implements Evaluator {
+    private static int alias(final Map<Integer, Integer> aliases,
+            final int neuron) {
+        final Integer alias = aliases.get(neuron);
+        return alias != null ? alias : neuron;
+    }
+
+    private static void put(final Map<Integer, List<Integer>> graph,
+            final int key, final int value) {
+        List<Integer> values = graph.get(key);
+        if (values == null)
+            graph.put(key, values = new ArrayList<Integer>());
+        values.add(value);
+    }
+
+    private static Set<Integer> reach(final Map<Integer, List<Integer>> graph,
+            final int from, final int count) {
+        final Set<Integer> reached = new HashSet<Integer>();
+        final Deque<Integer> pending = new ArrayDeque<Integer>();
+        for (int i = from; i < from + count; ++i)
+            if (reached.add(i))
+                pending.push(i);
+        while (!pending.isEmpty()) {
+            final List<Integer> next = graph.get(pending.pop());
+            if (next != null)
+                for (final int neuron : next)
+                    if (reached.add(neuron))
+                        pending.push(neuron);
+        }
+        return reached;
+    }
+
+    public final int[]      neurons;
+    public final double[]   values;
+    public final Activation activation;
+    final int[]             offsets;
+    final int[]             sources;
+    final double[]          weights;
+
+    private Network(final Network network) {
+        neurons = network.neurons;
+        values = new double[network.values.length];
+        activation = network.activation;
+        offsets = network.offsets;
+        sources = network.sources;
+        weights = network.weights;
+    }
+
+    public Network(final Genes genes, final Activation activation) {
+        this.activation = activation;
+        final Map<Integer, List<Integer>> forward = new HashMap<Integer, List<Integer>>();
+        final Map<Integer, List<Integer>> backward = new HashMap<Integer, List<Integer>>();
+        for (int i = 0; i < genes.size(); ++i)
+            if (genes.enabled(i)) {
+                put(forward, genes.input(i), genes.output(i));
+                put(backward, genes.output(i), genes.input(i));
+            }
+        final Set<Integer> driven = reach(forward, 0, INPUTS);
+        final Set<Integer> useful = reach(backward, INPUTS, OUTPUTS);
+
+        final Map<Integer, List<Integer>> incoming = new HashMap<Integer, List<Integer>>();
+        final Map<Integer, List<Integer>> successors = new HashMap<Integer, List<Integer>>();
+        final Map<Integer, Integer> pending = new HashMap<Integer, Integer>();
+        for (int i = 0; i < genes.size(); ++i) {
+            final int input = genes.input(i);
+            final int output = genes.output(i);
+            if (!genes.enabled(i) || !driven.contains(input)
+                    || !useful.contains(output))
+                continue;
+            put(incoming, output, i);
+            for (final int neuron : new int[] { input, output })
+                if (neuron >= INPUTS + OUTPUTS
+                        && !successors.containsKey(neuron)) {
+                    successors.put(neuron, new ArrayList<Integer>());
+                    pending.put(neuron, 0);
+                }
+        }
+        for (final List<Integer> edges : incoming.values())
+            for (final int i : edges) {
+                final int input = genes.input(i);
+                final int output = genes.output(i);
+                if (input != output && successors.containsKey(input)
+                        && successors.containsKey(output)) {
+                    successors.get(input).add(output);
+                    pending.put(output, pending.get(output) + 1);
+                }
+            }
+
+        final List<Integer> order = new ArrayList<Integer>();
+        final TreeSet<Integer> remaining = new TreeSet<Integer>(
+                pending.keySet());
+        final PriorityQueue<Integer> ready = new PriorityQueue<Integer>();
+        for (final int neuron : remaining)
+            if (pending.get(neuron) == 0)
+                ready.add(neuron);
+        while (!remaining.isEmpty()) {
+            final int neuron = ready.isEmpty() ? remaining.first()
+                    : ready.poll();
+            if (!remaining.remove(neuron))
+                continue;
+            order.add(neuron);
+            for (final int next : successors.get(neuron)) {
+                pending.put(next, pending.get(next) - 1);
+                if (pending.get(next) == 0)
+                    ready.add(next);
+            }
+        }
+
+        final Map<Integer, Integer> positions = new HashMap<Integer, Integer>();
+        for (int i = 0; i < INPUTS; ++i)
+            positions.put(i, i);
+        for (int i = 0; i < order.size(); ++i)
+            positions.put(order.get(i), INPUTS + i);
+        for (int i = 0; i < OUTPUTS; ++i)
+            positions.put(INPUTS + i, INPUTS + order.size() + i);
+
+        final Map<Integer, Integer> aliases = new HashMap<Integer, Integer>();
+        final Map<List<Long>, Integer> computed = new HashMap<List<Long>, Integer>();
+        for (final int neuron : order) {
+            final int position = positions.get(neuron);
+            final List<Long> key = new ArrayList<Long>();
+            int latest = -1;
+            for (final int i : incoming.get(neuron)) {
+                final int source = alias(aliases, genes.input(i));
+                latest = Math.max(latest, positions.get(source));
+                key.add((long) source);
+                key.add(Double.doubleToLongBits(genes.weight(i)));
+            }
+            boolean feedback = false;
+            for (final int next : successors.get(neuron))
+                feedback |= positions.get(next) <= position;
+            final Integer same = computed.get(key);
+            if (same != null && !feedback && latest < positions.get(same))
+                aliases.put(neuron, same);
+            else if (!computed.containsKey(key))
+                computed.put(key, neuron);
+        }
+
+        neurons = new int[INPUTS + order.size() - aliases.size() + OUTPUTS];
+        final Map<Integer, Integer> slots = new HashMap<Integer, Integer>();
+        int size = 0;
+        for (int i = 0; i < INPUTS; ++i)
+            slots.put(neurons[size] = i, size++);
+        for (final int neuron : order)
+            if (!aliases.containsKey(neuron))
+                slots.put(neurons[size] = neuron, size++);
+        for (int i = 0; i < OUTPUTS; ++i)
+            slots.put(neurons[size] = INPUTS + i, size++);
+
+        offsets = new int[size + 1];
+        for (final Map.Entry<Integer, List<Integer>> entry : incoming
+                .entrySet())
+            if (slots.containsKey(entry.getKey()))
+                offsets[slots.get(entry.getKey()) + 1] = entry.getValue()
+                        .size();
+        for (int i = 0; i < size; ++i)
+            offsets[i + 1] += offsets[i];
+        sources = new int[offsets[size]];
+        weights = new double[offsets[size]];
+        for (int slot = 0; slot < size; ++slot) {
+            final List<Integer> edges = incoming.get(neurons[slot]);
+            if (edges == null)
+                continue;
+            int edge = offsets[slot];
+            for (final int i : edges) {
+                sources[edge] = slots.get(alias(aliases, genes.input(i)));
+                weights[edge++] = genes.weight(i);
+            }
+        }
+
+        values = new double[size];
+    }
+
+    @Override
+    public Network clone() {
+        return new Network(this);
+    }
+
+    @Override
+    public void evaluate(final double[] input, final double[] output) {
+        System.arraycopy(input, 0, values, 0, INPUTS);
+        for (int i = INPUTS; i < values.length; ++i) {
+            double sum = 0.0;
+            for (int edge = offsets[i]; edge < offsets[i + 1]; ++edge)
+                sum += weights[edge] * values[sources[edge]];
+            if (offsets[i] != offsets[i + 1])
+                values[i] = Neuron.sigmoid(activation, sum);
+        }
+        System.arraycopy(values, values.length - OUTPUTS, output, 0, OUTPUTS);
+    }
+}
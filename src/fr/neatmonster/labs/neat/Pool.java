@@ -1,14 +1,109 @@
 package fr.neatmonster.labs.neat;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
 
 public class Pool {
+    @SuppressWarnings("serial")
+    private class Breeding extends RecursiveAction {
+        private final Species[]         parents;
+        private final RandomGenerator[] streams;
+        private final Genome[]          children;
+        private final int               from;
+        private final int               to;
+
+        private Breeding(final Species[] parents,
+                final RandomGenerator[] streams, final Genome[] children,
+                final int from, final int to) {
+            this.parents = parents;
+            this.streams = streams;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                final int middle = from + to >>> 1;
+                invokeAll(new Breeding(parents, streams, children, from,
+                        middle),
+                        new Breeding(parents, streams, children, middle, to));
+                return;
+            }
+            try {
+                for (int i = from; i < to; ++i) {
+                    stream.set(streams[i]);
+                    children[i] = parents[i].breedChild();
+                }
+            } finally {
+                stream.remove();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Speciation extends RecursiveAction {
+        private final List<Genome> children;
+        private final int[]        matches;
+        private final int[]        closest;
+        private final double[]     distances;
+        private final int          from;
+        private final int          to;
+
+        private Speciation(final List<Genome> children, final int[] matches,
+                final int[] closest, final double[] distances, final int from,
+                final int to) {
+            this.children = children;
+            this.matches = matches;
+            this.closest = closest;
+            this.distances = distances;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                final int middle = from + to >>> 1;
+                invokeAll(
+                        new Speciation(children, matches, closest, distances,
+                                from, middle),
+                        new Speciation(children, matches, closest, distances,
+                                middle, to));
+                return;
+            }
+            for (int i = from; i < to; ++i) {
+                matches[i] = -1;
+                closest[i] = -1;
+                for (int k = 0; k < species.size(); ++k) {
+                    final double distance = children.get(i)
+                            .distance(species.get(k).genomes.get(0));
+                    if (distance < deltaThreshold) {
+                        matches[i] = k;
+                        break;
+                    }
+                    if (closest[i] < 0 || distance < distances[i]) {
+                        closest[i] = k;
+                        distances[i] = distance;
+                    }
+                }
+            }
+        }
+    }
+
     public static final int POPULATION    = 50;
     public static final int STALE_SPECIES = 15;
+    public static final int MAX_SPECIES   = 64;
     public static final int INPUTS        = 4;
     public static final int OUTPUTS       = 1;
     public static final int TIMEOUT       = 20;
@@ -27,74 +122,237 @@ public class Pool {
     public static final double PERTURBATION     = 0.9;
     public static final double CROSSOVER        = 0.75;
 
-    public static final Random rnd = new Random();
+    private static final int BATCH_SIZE = 16;
+
+    private static int first(final double[] sorted, final int size,
+            final double key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = low + high >>> 1;
+            if (sorted[middle] < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private static double select(final double[] values, final int size,
+            final int k) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            final double pivot = values[low + high >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot)
+                    ++i;
+                while (values[j] > pivot)
+                    --j;
+                if (i <= j) {
+                    final double value = values[i];
+                    values[i++] = values[j];
+                    values[j--] = value;
+                }
+            }
+            if (k <= j)
+                high = j;
+            else if (k >= i)
+                low = i;
+            else
+                break;
+        }
+        return values[k];
+    }
+
+    public final Random        rnd;
+    public final int           population;
+    public final List<Species> species    = new ArrayList<>();
+    public int                 generation = 0;
+    public int                 innovation = OUTPUTS;
+    public int                 neuron     = INPUTS;
+    public double              maxFitness = 0.0;
 
-    public static final List<Species> species    = new ArrayList<>();
-    public static int                 generation = 0;
-    public static int                 innovation = OUTPUTS;
-    public static double              maxFitness = 0.0;
+    public final double[] mutationRates  = new double[] { CONN_MUTATION,
+            LINK_MUTATION, BIAS_MUTATION, NODE_MUTATION, ENABLE_MUTATION,
+            DISABLE_MUTATION, STEP_SIZE };
+    public int            staleSpecies   = STALE_SPECIES;
+    public int            maxSpecies     = MAX_SPECIES;
+    public double         deltaDisjoint  = DELTA_DISJOINT;
+    public double         deltaWeights   = DELTA_WEIGHTS;
+    public double         deltaThreshold = DELTA_THRESHOLD;
+    public double         perturbation   = PERTURBATION;
+    public double         crossover      = CROSSOVER;
+    public Activation     activation     = Activation.EXACT;
 
-    public static void addToSpecies(final Genome child) {
-        for (final Species species : Pool.species)
-            if (child.sameSpecies(species.genomes.get(0))) {
+    private final Map<Long, Integer>    links  = new HashMap<Long, Integer>();
+    private final Map<Integer, Integer> splits = new HashMap<Integer, Integer>();
+
+    private final ThreadLocal<RandomGenerator> stream = new ThreadLocal<RandomGenerator>();
+    private ForkJoinPool                       executor;
+
+    private double[] keys    = new double[0];
+    private double[] sorted  = new double[0];
+    private int[]    next    = new int[0];
+    private int[]    ranks   = new int[0];
+    private Genome[] members = new Genome[0];
+    private int[]    offsets = new int[1];
+
+    public Pool() {
+        this(POPULATION, new Random());
+    }
+
+    public Pool(final int population, final Random rnd) {
+        this.population = population;
+        this.rnd = rnd;
+    }
+
+    public Species addToSpecies(final Genome child) {
+        Species closest = null;
+        double nearest = Double.POSITIVE_INFINITY;
+        for (final Species species : this.species) {
+            final double distance = child.distance(species.genomes.get(0));
+            if (distance < deltaThreshold) {
                 species.genomes.add(child);
-                return;
+                return species;
+            }
+            if (closest == null || distance < nearest) {
+                closest = species;
+                nearest = distance;
             }
+        }
+        if (species.size() >= maxSpecies) {
+            closest.genomes.add(child);
+            return closest;
+        }
 
-        final Species childSpecies = new Species();
+        final Species childSpecies = new Species(this);
         childSpecies.genomes.add(child);
         species.add(childSpecies);
+        return childSpecies;
     }
 
-    public static void cullSpecies(final boolean cutToOne) {
-        for (final Species species : Pool.species) {
-            Collections.sort(species.genomes, new Comparator<Genome>() {
+    boolean breeding() {
+        return stream.get() != null;
+    }
 
-                @Override
-                public int compare(final Genome o1, final Genome o2) {
-                    final double cmp = o2.fitness - o1.fitness;
-                    return cmp == 0.0 ? 0 : cmp > 0.0 ? 1 : -1;
-                }
-            });
+    private void calculateAverageFitness() {
+        for (int k = 0; k < species.size(); ++k) {
+            double total = 0.0;
+            for (int i = offsets[k]; i < offsets[k + 1]; ++i)
+                total += ranks[i];
+            species.get(k).averageFitness = total
+                    / (offsets[k + 1] - offsets[k]);
+        }
+    }
+
+    public void cullSpecies(final boolean cutToOne) {
+        for (final Species species : this.species) {
+            final List<Genome> genomes = species.genomes;
+            final int size = genomes.size();
+            if (size == 0)
+                continue;
 
-            double remaining = Math.ceil(species.genomes.size() / 2.0);
-            if (cutToOne)
-                remaining = 1.0;
+            if (cutToOne) {
+                Genome best = genomes.get(0);
+                for (int i = 1; i < size; ++i)
+                    if (genomes.get(i).fitness > best.fitness)
+                        best = genomes.get(i);
+                genomes.clear();
+                genomes.add(best);
+                continue;
+            }
 
-            while (species.genomes.size() > remaining)
-                species.genomes.remove(species.genomes.size() - 1);
+            final int remaining = (size + 1) / 2;
+            ensureCapacity(size);
+            for (int i = 0; i < size; ++i) {
+                keys[i] = 0.0 - genomes.get(i).fitness;
+                sorted[i] = keys[i];
+            }
+            final double threshold = select(sorted, size, remaining - 1);
+            int ties = remaining;
+            for (int i = 0; i < size; ++i)
+                if (keys[i] < threshold)
+                    --ties;
+            int kept = 0;
+            for (int i = 0; i < size; ++i)
+                if (keys[i] < threshold || keys[i] == threshold && ties-- > 0)
+                    genomes.set(kept++, genomes.get(i));
+            genomes.subList(remaining, size).clear();
+            sort(genomes);
         }
     }
 
-    public static void initializePool() {
-        for (int i = 0; i < POPULATION; ++i) {
-            final Genome basic = new Genome();
+    private void ensureCapacity(final int size) {
+        if (keys.length >= size)
+            return;
+        final int capacity = Math.max(size, 2 * keys.length);
+        keys = new double[capacity];
+        sorted = new double[capacity];
+        next = new int[capacity];
+        ranks = new int[capacity];
+        members = new Genome[capacity];
+    }
+
+    public void initializePool() {
+        for (int i = 0; i < population; ++i) {
+            final Genome basic = new Genome(this);
             basic.maxNeuron = INPUTS;
             basic.mutate();
             addToSpecies(basic);
         }
     }
 
-    public static void newGeneration() {
+    private List<Genome> breed(final List<Species> parents,
+            final SplittableRandom root) {
+        final RandomGenerator[] streams = new RandomGenerator[parents.size()];
+        for (int i = 0; i < streams.length; ++i)
+            streams[i] = root.split();
+        final Genome[] children = new Genome[parents.size()];
+        executor.invoke(new Breeding(parents.toArray(new Species[0]), streams,
+                children, 0, children.length));
+        final List<Genome> bred = new ArrayList<Genome>();
+        Collections.addAll(bred, children);
+        return bred;
+    }
+
+    public synchronized int link(final int input, final int output) {
+        final long link = (long) input << 32 | output & 0xffffffffL;
+        Integer innovation = links.get(link);
+        if (innovation == null) {
+            innovation = ++this.innovation;
+            links.put(link, innovation);
+        }
+        return innovation;
+    }
+
+    public void newGeneration() {
+        links.clear();
+        splits.clear();
         cullSpecies(false);
         rankGlobally();
         removeStaleSpecies();
         rankGlobally();
-        for (final Species species : Pool.species)
-            species.calculateAverageFitness();
+        calculateAverageFitness();
         removeWeakSpecies();
         final double sum = totalAverageFitness();
+        if (executor != null) {
+            newGeneration(sum);
+            return;
+        }
         final List<Genome> children = new ArrayList<Genome>();
-        for (final Species species : Pool.species) {
+        for (final Species species : this.species) {
             final double breed = Math
-                    .floor(species.averageFitness / sum * POPULATION) - 1.0;
+                    .floor(species.averageFitness / sum * population) - 1.0;
             for (int i = 0; i < breed; ++i)
                 children.add(species.breedChild());
         }
         cullSpecies(true);
-        while (children.size() + species.size() < POPULATION) {
-            final Species species = Pool.species
-                    .get(rnd.nextInt(Pool.species.size()));
+        while (children.size() + species.size() < population) {
+            final Species species = this.species
+                    .get(rnd.nextInt(this.species.size()));
             children.add(species.breedChild());
         }
         for (final Genome child : children)
@@ -102,36 +360,75 @@ public class Pool {
         ++generation;
     }
 
-    public static void rankGlobally() {
-        final List<Genome> global = new ArrayList<Genome>();
-        for (final Species species : Pool.species)
-            for (final Genome genome : species.genomes)
-                global.add(genome);
+    private void newGeneration(final double sum) {
+        final int innovations = innovation;
+        final int neurons = neuron;
+        final SplittableRandom root = new SplittableRandom(rnd.nextLong());
+        final List<Species> parents = new ArrayList<Species>();
+        for (final Species species : this.species) {
+            final double breed = Math
+                    .floor(species.averageFitness / sum * population) - 1.0;
+            for (int i = 0; i < breed; ++i)
+                parents.add(species);
+        }
+        final List<Genome> children = breed(parents, root);
+        cullSpecies(true);
+        parents.clear();
+        while (children.size() + parents.size() + species.size() < population)
+            parents.add(species.get(rnd.nextInt(species.size())));
+        children.addAll(breed(parents, root));
+        renumber(children, innovations, neurons);
+        speciate(children);
+        ++generation;
+    }
+
+    public synchronized int neuron() {
+        return ++neuron;
+    }
 
-        Collections.sort(global, new Comparator<Genome>() {
+    public RandomGenerator random() {
+        final RandomGenerator stream = this.stream.get();
+        return stream != null ? stream : rnd;
+    }
 
-            @Override
-            public int compare(final Genome o1, final Genome o2) {
-                final double cmp = o1.fitness - o2.fitness;
-                return cmp == 0 ? 0 : cmp > 0 ? 1 : -1;
+    private void rank(final int size) {
+        System.arraycopy(keys, 0, sorted, 0, size);
+        Arrays.parallelSort(sorted, 0, size);
+        Arrays.fill(next, 0, size, 0);
+        for (int i = 0; i < size; ++i) {
+            final int first = first(sorted, size, keys[i]);
+            ranks[i] = first + next[first]++;
+        }
+    }
+
+    public void rankGlobally() {
+        int size = 0;
+        for (final Species species : this.species)
+            size += species.genomes.size();
+        ensureCapacity(size);
+        if (offsets.length <= species.size())
+            offsets = new int[Math.max(species.size() + 1,
+                    2 * offsets.length)];
+
+        int i = 0;
+        for (int k = 0; k < species.size(); ++k) {
+            offsets[k] = i;
+            for (final Genome genome : species.get(k).genomes) {
+                members[i] = genome;
+                keys[i++] = genome.fitness + 0.0;
             }
-        });
+        }
+        offsets[species.size()] = i;
 
-        for (int i = 0; i < global.size(); ++i)
-            global.get(i).globalRank = i;
+        rank(size);
+        for (i = 0; i < size; ++i)
+            members[i].globalRank = ranks[i];
     }
 
-    public static void removeStaleSpecies() {
+    public void removeStaleSpecies() {
         final List<Species> survived = new ArrayList<Species>();
-        for (final Species species : Pool.species) {
-            Collections.sort(species.genomes, new Comparator<Genome>() {
-
-                @Override
-                public int compare(final Genome o1, final Genome o2) {
-                    final double cmp = o2.fitness - o1.fitness;
-                    return cmp == 0 ? 0 : cmp > 0 ? 1 : -1;
-                }
-            });
+        for (final Species species : this.species) {
+            sort(species.genomes);
 
             if (species.genomes.get(0).fitness > species.topFitness) {
                 species.topFitness = species.genomes.get(0).fitness;
@@ -139,7 +436,7 @@ public class Pool {
             } else
                 ++species.staleness;
 
-            if (species.staleness < STALE_SPECIES
+            if (species.staleness < staleSpecies
                     || species.topFitness >= maxFitness)
                 survived.add(species);
         }
@@ -148,13 +445,13 @@ public class Pool {
         species.addAll(survived);
     }
 
-    public static void removeWeakSpecies() {
+    public void removeWeakSpecies() {
         final List<Species> survived = new ArrayList<Species>();
 
         final double sum = totalAverageFitness();
-        for (final Species species : Pool.species) {
+        for (final Species species : this.species) {
             final double breed = Math
-                    .floor(species.averageFitness / sum * POPULATION);
+                    .floor(species.averageFitness / sum * population);
             if (breed >= 1.0)
                 survived.add(species);
         }
@@ -163,9 +460,198 @@ public class Pool {
         species.addAll(survived);
     }
 
-    public static double totalAverageFitness() {
+    public Genome replace(final Genome genome) {
+        final double sum = totalAverageFitness();
+        Species parent = species.get(species.size() - 1);
+        if (sum > 0.0) {
+            double remaining = rnd.nextDouble() * sum;
+            for (final Species species : this.species) {
+                remaining -= species.averageFitness;
+                if (remaining < 0.0) {
+                    parent = species;
+                    break;
+                }
+            }
+        } else
+            parent = species.get(rnd.nextInt(species.size()));
+        sort(parent.genomes);
+        final Genome child = parent
+                .breedChild((parent.genomes.size() + 1) / 2);
+
+        for (final Species species : this.species)
+            if (species.genomes.remove(genome)) {
+                if (genome.fitness > species.topFitness) {
+                    species.topFitness = genome.fitness;
+                    species.staleness = 0;
+                }
+                if (species.genomes.isEmpty())
+                    this.species.remove(species);
+                break;
+            }
+        return child;
+    }
+
+    public void respeciate() {
+        links.clear();
+        splits.clear();
+        final List<Genome> genomes = new ArrayList<Genome>();
+        for (final Species species : this.species) {
+            for (int i = 1; i < species.genomes.size(); ++i)
+                genomes.add(species.genomes.get(i));
+            species.genomes.subList(1, species.genomes.size()).clear();
+        }
+        for (final Genome genome : genomes)
+            addToSpecies(genome);
+
+        final List<Species> previous = new ArrayList<Species>(species);
+        rankGlobally();
+        removeStaleSpecies();
+        if (species.isEmpty())
+            species.addAll(previous);
+        rankGlobally();
+        calculateAverageFitness();
+        if (totalAverageFitness() > 0.0)
+            removeWeakSpecies();
+        ++generation;
+    }
+
+    private void renumber(final List<Genome> children, final int innovations,
+            final int neurons) {
+        final Map<Integer, Integer> innovationMap = new HashMap<Integer, Integer>();
+        final Map<Integer, Integer> neuronMap = new HashMap<Integer, Integer>();
+        innovation = innovations;
+        neuron = neurons;
+        for (final Genome child : children) {
+            final Genes genes = new Genes();
+            int maxNeuron = child.maxNeuron > neurons ? INPUTS
+                    : child.maxNeuron;
+            for (int i = 0; i < child.genes.size(); ++i) {
+                final int input = renumber(neuronMap, child.genes.input(i),
+                        neurons, true);
+                final int output = renumber(neuronMap, child.genes.output(i),
+                        neurons, true);
+                maxNeuron = Math.max(maxNeuron, Math.max(input, output));
+                genes.insert(input, output, child.genes.weight(i),
+                        child.genes.enabled(i), renumber(innovationMap,
+                                child.genes.innovation(i), innovations,
+                                false));
+            }
+            child.genes.copy(genes);
+            child.maxNeuron = maxNeuron;
+        }
+
+        final Map<Long, Integer> links = new HashMap<Long, Integer>();
+        for (final Map.Entry<Long, Integer> entry : this.links.entrySet()) {
+            final int input = (int) (entry.getKey() >> 32);
+            final int output = (int) (long) entry.getKey();
+            final Integer in = input > neurons ? neuronMap.get(input) : input;
+            final Integer out = output > neurons ? neuronMap.get(output)
+                    : output;
+            final Integer innovation = entry.getValue() > innovations
+                    ? innovationMap.get(entry.getValue()) : entry.getValue();
+            if (in != null && out != null && innovation != null)
+                links.put((long) in << 32 | out & 0xffffffffL, innovation);
+        }
+        this.links.clear();
+        this.links.putAll(links);
+
+        final Map<Integer, Integer> splits = new HashMap<Integer, Integer>();
+        for (final Map.Entry<Integer, Integer> entry : this.splits.entrySet()) {
+            final Integer innovation = entry.getKey() > innovations
+                    ? innovationMap.get(entry.getKey()) : entry.getKey();
+            final Integer neuron = entry.getValue() > neurons
+                    ? neuronMap.get(entry.getValue()) : entry.getValue();
+            if (innovation != null && neuron != null)
+                splits.put(innovation, neuron);
+        }
+        this.splits.clear();
+        this.splits.putAll(splits);
+    }
+
+    private int renumber(final Map<Integer, Integer> map, final int id,
+            final int base, final boolean neurons) {
+        if (id <= base)
+            return id;
+        Integer renumbered = map.get(id);
+        if (renumbered == null) {
+            renumbered = neurons ? ++neuron : ++innovation;
+            map.put(id, renumbered);
+        }
+        return renumbered;
+    }
+
+    public void setParallelism(final int parallelism) {
+        if (executor != null)
+            executor.shutdown();
+        executor = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    private void speciate(final List<Genome> children) {
+        final int[] matches = new int[children.size()];
+        final int[] closest = new int[children.size()];
+        final double[] distances = new double[children.size()];
+        executor.invoke(new Speciation(children, matches, closest, distances,
+                0, children.size()));
+        final int existing = species.size();
+        for (int i = 0; i < children.size(); ++i) {
+            final Genome child = children.get(i);
+            if (matches[i] >= 0) {
+                species.get(matches[i]).genomes.add(child);
+                continue;
+            }
+            Species childSpecies = null;
+            for (int k = existing; k < species.size(); ++k) {
+                final double distance = child
+                        .distance(species.get(k).genomes.get(0));
+                if (distance < deltaThreshold) {
+                    childSpecies = species.get(k);
+                    break;
+                }
+                if (closest[i] < 0 || distance < distances[i]) {
+                    closest[i] = k;
+                    distances[i] = distance;
+                }
+            }
+            if (childSpecies == null && species.size() >= maxSpecies)
+                childSpecies = species.get(closest[i]);
+            if (childSpecies == null) {
+                childSpecies = new Species(this);
+                species.add(childSpecies);
+            }
+            childSpecies.genomes.add(child);
+        }
+    }
+
+    private void sort(final List<Genome> genomes) {
+        final int size = genomes.size();
+        boolean ordered = true;
+        for (int i = 1; ordered && i < size; ++i)
+            ordered = genomes.get(i - 1).fitness >= genomes.get(i).fitness;
+        if (ordered)
+            return;
+
+        ensureCapacity(size);
+        for (int i = 0; i < size; ++i)
+            keys[i] = 0.0 - genomes.get(i).fitness;
+        rank(size);
+        for (int i = 0; i < size; ++i)
+            members[ranks[i]] = genomes.get(i);
+        for (int i = 0; i < size; ++i)
+            genomes.set(i, members[i]);
+    }
+
+    public synchronized int split(final int innovation) {
+        Integer neuron = splits.get(innovation);
+        if (neuron == null) {
+            neuron = ++this.neuron;
+            splits.put(innovation, neuron);
+        }
+        return neuron;
+    }
+
+    public double totalAverageFitness() {
         double total = 0;
-        for (final Species species : Pool.species)
+        for (final Species species : this.species)
             total += species.averageFitness;
         return total;
     }
@@ -0,0 +1,153 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Population {
+    private static class Group {
+        private final Activation activation;
+        private final int[]      offsets;
+        private final int[]      sources;
+        private final int[]      members;
+        private final double[]   weights;
+        private final double[]   values;
+        private final double[]   sums;
+
+        private Group(final Network network, final List<Integer> members,
+                final List<Network> networks) {
+            activation = network.activation;
+            offsets = network.offsets;
+            sources = network.sources;
+            this.members = new int[members.size()];
+            for (int i = 0; i < this.members.length; ++i)
+                this.members[i] = members.get(i);
+            final int lanes = this.members.length;
+            weights = new double[sources.length * lanes];
+            for (int i = 0; i < lanes; ++i) {
+                final double[] weights = networks.get(this.members[i]).weights;
+                for (int edge = 0; edge < weights.length; ++edge)
+                    this.weights[edge * lanes + i] = weights[edge];
+            }
+            values = new double[(offsets.length - 1) * lanes];
+            sums = new double[lanes];
+        }
+    }
+
+    private static class Scalar implements Kernel {
+
+        @Override
+        public void accumulate(final double[] sums, final double[] weights,
+                final int weight, final double[] values, final int value,
+                final int lanes) {
+            for (int i = 0; i < lanes; ++i)
+                sums[i] += weights[weight + i] * values[value + i];
+        }
+    }
+
+    private static class Topology {
+        private final Activation activation;
+        private final int[]      offsets;
+        private final int[]      sources;
+
+        private Topology(final Network network) {
+            activation = network.activation;
+            offsets = network.offsets;
+            sources = network.sources;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Topology))
+                return false;
+            final Topology topology = (Topology) o;
+            return activation == topology.activation
+                    && Arrays.equals(offsets, topology.offsets)
+                    && Arrays.equals(sources, topology.sources);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * activation.ordinal() + Arrays.hashCode(offsets))
+                    + Arrays.hashCode(sources);
+        }
+    }
+
+    private static final Kernel KERNEL = kernel();
+
+    private static Kernel kernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            try {
+                return (Kernel) Class
+                        .forName("fr.neatmonster.labs.neat.VectorKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (final ReflectiveOperationException | LinkageError e) {
+            }
+        return new Scalar();
+    }
+
+    public static boolean vectorized() {
+        return !(KERNEL instanceof Scalar);
+    }
+
+    private final Group[] groups;
+
+    public Population(final List<Network> networks) {
+        final Map<Topology, List<Integer>> topologies = new LinkedHashMap<Topology, List<Integer>>();
+        for (int i = 0; i < networks.size(); ++i) {
+            if (networks.get(i) == null)
+                continue;
+            final Topology topology = new Topology(networks.get(i));
+            List<Integer> members = topologies.get(topology);
+            if (members == null)
+                topologies.put(topology, members = new ArrayList<Integer>());
+            members.add(i);
+        }
+        groups = new Group[topologies.size()];
+        int i = 0;
+        for (final List<Integer> members : topologies.values())
+            groups[i++] = new Group(networks.get(members.get(0)), members,
+                    networks);
+    }
+
+    public void evaluate(final int group, final double[][] inputs,
+            final boolean[] dead, final double[][] outputs) {
+        final Group g = groups[group];
+        final int lanes = g.members.length;
+        boolean alive = false;
+        for (final int member : g.members)
+            alive |= !dead[member];
+        if (!alive)
+            return;
+
+        final double[] values = g.values;
+        for (int slot = 0; slot < INPUTS; ++slot)
+            for (int i = 0; i < lanes; ++i)
+                values[slot * lanes + i] = inputs[slot][g.members[i]];
+        final int size = g.offsets.length - 1;
+        for (int slot = INPUTS; slot < size; ++slot) {
+            if (g.offsets[slot] == g.offsets[slot + 1])
+                continue;
+            Arrays.fill(g.sums, 0.0);
+            for (int edge = g.offsets[slot]; edge < g.offsets[slot + 1]; ++edge)
+                KERNEL.accumulate(g.sums, g.weights, edge * lanes, values,
+                        g.sources[edge] * lanes, lanes);
+            for (int i = 0; i < lanes; ++i)
+                values[slot * lanes + i] = Neuron.sigmoid(g.activation,
+                        g.sums[i]);
+        }
+        for (int k = 0; k < OUTPUTS; ++k)
+            for (int i = 0; i < lanes; ++i)
+                outputs[k][g.members[i]] = values[(size - OUTPUTS + k) * lanes
+                        + i];
+    }
+
+    public int groups() {
+        return groups.length;
+    }
+}
@@ -1,53 +1,55 @@
 package fr.neatmonster.labs.neat;
 
-import static fr.neatmonster.labs.neat.Pool.CROSSOVER;
-import static fr.neatmonster.labs.neat.Pool.rnd;
-
 import java.util.ArrayList;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 public class Species {
+    public final Pool         pool;
     public final List<Genome> genomes        = new ArrayList<Genome>();
     public double             topFitness     = 0.0;
     public double             averageFitness = 0.0;
     public int                staleness      = 0;
 
+    public Species(final Pool pool) {
+        this.pool = pool;
+    }
+
     public Genome breedChild() {
+        return breedChild(genomes.size());
+    }
+
+    public Genome breedChild(final int parents) {
+        final RandomGenerator rnd = pool.random();
         final Genome child;
-        if (rnd.nextDouble() < CROSSOVER) {
-            final Genome g1 = genomes.get(rnd.nextInt(genomes.size()));
-            final Genome g2 = genomes.get(rnd.nextInt(genomes.size()));
+        if (rnd.nextDouble() < pool.crossover) {
+            final Genome g1 = genomes.get(rnd.nextInt(parents));
+            final Genome g2 = genomes.get(rnd.nextInt(parents));
             child = crossover(g1, g2);
         } else
-            child = genomes.get(rnd.nextInt(genomes.size())).clone();
+            child = genomes.get(rnd.nextInt(parents)).clone();
         child.mutate();
         return child;
     }
 
-    public void calculateAverageFitness() {
-        double total = 0.0;
-        for (final Genome genome : genomes)
-            total += genome.globalRank;
-        averageFitness = total / genomes.size();
-    }
-
     public Genome crossover(Genome g1, Genome g2) {
+        final RandomGenerator rnd = pool.random();
         if (g2.fitness > g1.fitness) {
             final Genome tmp = g1;
             g1 = g2;
             g2 = tmp;
         }
 
-        final Genome child = new Genome();
-        outerloop: for (final Synapse gene1 : g1.genes) {
-            for (final Synapse gene2 : g2.genes)
-                if (gene1.innovation == gene2.innovation)
-                    if (rnd.nextBoolean() && gene2.enabled) {
-                        child.genes.add(gene2.clone());
-                        continue outerloop;
-                    } else
-                        break;
-            child.genes.add(gene1.clone());
+        final Genome child = new Genome(pool);
+        child.genes.copy(g1.genes);
+        int j = 0;
+        for (int i = 0; i < g1.genes.size(); ++i) {
+            final int innovation = g1.genes.innovation(i);
+            while (j < g2.genes.size() && g2.genes.innovation(j) < innovation)
+                ++j;
+            if (j < g2.genes.size() && g2.genes.innovation(j) == innovation
+                    && rnd.nextBoolean() && g2.genes.enabled(j))
+                child.genes.set(i, g2.genes, j);
         }
 
         child.maxNeuron = Math.max(g1.maxNeuron, g2.maxNeuron);
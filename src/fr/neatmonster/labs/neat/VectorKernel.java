@@ -0,0 +1,24 @@
+package fr.neatmonster.labs.neat;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+class VectorKernel implements Kernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void accumulate(final double[] sums, final double[] weights,
+            final int weight, final double[] values, final int value,
+            final int lanes) {
+        final int bound = SPECIES.loopBound(lanes);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, sums, i)
+                    .add(DoubleVector.fromArray(SPECIES, weights, weight + i)
+                            .mul(DoubleVector.fromArray(SPECIES, values,
+                                    value + i)))
+                    .intoArray(sums, i);
+        for (; i < lanes; ++i)
+            sums[i] += weights[weight + i] * values[value + i];
+    }
+}
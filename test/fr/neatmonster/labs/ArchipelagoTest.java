@@ -0,0 +1,35 @@
+package fr.neatmonster.labs;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import fr.neatmonster.labs.neat.Pool;
+
+public class ArchipelagoTest {
+    private static final int INTERVAL = 1000;
+
+    @Test
+    @Timeout(60)
+    public void deadlineStopsBeforeTheNextMigration() throws Exception {
+        final List<Simulation> simulations = new ArrayList<Simulation>();
+        for (int i = 0; i < 2; ++i) {
+            final Simulation simulation = new Simulation(
+                    new Pool(Pool.POPULATION, new Random(7L + i)),
+                    new Random(7L + i));
+            simulation.setBudget(200);
+            simulations.add(simulation);
+        }
+        new Archipelago(simulations, INTERVAL, 2).run(Integer.MAX_VALUE,
+                TimeUnit.MILLISECONDS.toNanos(200L));
+        for (final Simulation simulation : simulations)
+            assertTrue(simulation.pool.generation < INTERVAL - 1,
+                    "island ran to generation " + simulation.pool.generation);
+    }
+}
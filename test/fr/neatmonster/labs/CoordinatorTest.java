@@ -0,0 +1,67 @@
+package fr.neatmonster.labs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.DataInputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import fr.neatmonster.labs.neat.Genome;
+import fr.neatmonster.labs.neat.Pool;
+import fr.neatmonster.labs.neat.Species;
+
+public class CoordinatorTest {
+    private static final int CHUNK = 4;
+
+    private static Simulation simulation() {
+        final Simulation simulation = new Simulation(new Pool());
+        simulation.setBudget(300);
+        return simulation;
+    }
+
+    @Test
+    @Timeout(60)
+    public void hungWorkerChunkIsRequeued() throws Exception {
+        final Pool pool = new Pool(16, new Random(7L));
+        pool.initializePool();
+        final List<Genome> genomes = new ArrayList<Genome>();
+        for (final Species species : pool.species)
+            genomes.addAll(species.genomes);
+
+        final Coordinator coordinator = new Coordinator(pool, CHUNK,
+                simulation());
+        coordinator.setPatience(200);
+        try (ServerSocket server = new ServerSocket(0, 0,
+                InetAddress.getLoopbackAddress())) {
+            coordinator.listen(server);
+            try (Socket hung = new Socket(server.getInetAddress(),
+                    server.getLocalPort())) {
+                while (coordinator.workers() == 0)
+                    Thread.sleep(10L);
+                coordinator.evaluate(42L, genomes);
+                assertEquals(0, coordinator.workers());
+                assertEquals(42L, new DataInputStream(hung.getInputStream())
+                        .readLong());
+            }
+        }
+
+        final Worker worker = new Worker(simulation());
+        for (int i = 0; i < genomes.size(); i += CHUNK) {
+            final List<Genome> chunk = genomes.subList(i,
+                    Math.min(i + CHUNK, genomes.size()));
+            final double[] fitness = new double[chunk.size()];
+            for (int j = 0; j < chunk.size(); ++j)
+                fitness[j] = chunk.get(j).fitness;
+            worker.evaluate(42L, chunk);
+            for (int j = 0; j < chunk.size(); ++j)
+                assertEquals(chunk.get(j).fitness, fitness[j]);
+        }
+    }
+}
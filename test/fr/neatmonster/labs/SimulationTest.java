@@ -0,0 +1,56 @@
+package fr.neatmonster.labs;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import fr.neatmonster.labs.Simulation.Bird;
+import fr.neatmonster.labs.neat.Pool;
+
+public class SimulationTest {
+    private static final int GRACE = 5;
+
+    private static void steady(final boolean flocked) {
+        final Pool pool = new Pool(50, new Random(7L));
+        final Simulation simulation = new Simulation(pool, new Random(7L));
+        simulation.setSteady(10);
+        simulation.setFlocked(flocked);
+        pool.initializePool();
+        simulation.initializeGame();
+        int spawns = 0;
+        while (simulation.ticks < 5000) {
+            final Set<Bird> alive = Collections
+                    .newSetFromMap(new IdentityHashMap<Bird, Boolean>());
+            for (final Bird bird : simulation.birds)
+                if (!bird.dead)
+                    alive.add(bird);
+            simulation.eval();
+            simulation.update();
+            for (final Bird bird : simulation.birds) {
+                if (bird.born > 0 && simulation.ticks - bird.born == 1)
+                    ++spawns;
+                assertTrue(!bird.dead || !alive.contains(bird)
+                        || simulation.ticks - bird.born > GRACE,
+                        "bird born at " + bird.born + " crashed at "
+                                + simulation.ticks);
+            }
+            simulation.learn();
+        }
+        assertTrue(spawns > 0);
+    }
+
+    @Test
+    public void spawnedBirdsSurviveTheirFirstTicks() {
+        steady(false);
+    }
+
+    @Test
+    public void spawnedFlockBirdsSurviveTheirFirstTicks() {
+        steady(true);
+    }
+}
@@ -0,0 +1,41 @@
+package fr.neatmonster.labs.neat;
+
+import static fr.neatmonster.labs.neat.Pool.INPUTS;
+import static fr.neatmonster.labs.neat.Pool.OUTPUTS;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class AssemblerTest {
+    @ParameterizedTest
+    @EnumSource(Activation.class)
+    public void matchesInterpreter(final Activation activation) {
+        final Pool pool = new Pool(200, new Random(3L));
+        pool.activation = activation;
+        GenomeTest.evolve(pool, 25);
+        final Assembler assembler = new Assembler(activation);
+        final Random rnd = new Random(11L);
+        final double[] input = new double[INPUTS];
+        final double[] expected = new double[OUTPUTS];
+        final double[] actual = new double[OUTPUTS];
+        for (final Species species : pool.species)
+            for (final Genome genome : species.genomes) {
+                final Network network = new Network(genome.genes,
+                        activation);
+                final Evaluator assembled = assembler.assemble(genome);
+                assertFalse(assembled instanceof Network);
+                for (int step = 0; step < 20; ++step) {
+                    for (int i = 0; i < INPUTS - 1; ++i)
+                        input[i] = rnd.nextDouble();
+                    input[INPUTS - 1] = 1.0;
+                    network.evaluate(input, expected);
+                    assembled.evaluate(input, actual);
+                    assertArrayEquals(expected, actual);
+                }
+            }
+    }
+}
@@ -0,0 +1,109 @@
+package fr.neatmonster.labs.neat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class GenesTest {
+    @Test
+    public void fingerprintIgnoresDisabledGenes() {
+        final Genes a = new Genes();
+        a.add(0, 5, 0.5, true, 10);
+        a.add(1, 5, -0.5, true, 12);
+        final Genes b = new Genes();
+        b.add(0, 5, 0.5, true, 10);
+        b.add(2, 5, 1.5, false, 11);
+        b.add(1, 5, -0.5, true, 12);
+        b.add(3, 5, 1.5, false, 13);
+        assertEquals(a.fingerprint(), b.fingerprint());
+
+        b.setEnabled(1, true);
+        assertNotEquals(a.fingerprint(), b.fingerprint());
+        b.setEnabled(1, false);
+        assertEquals(a.fingerprint(), b.fingerprint());
+    }
+
+    @Test
+    public void indexesFollowInsertAndSet() {
+        final Random rnd = new Random(42L);
+        final Genes genes = new Genes();
+        final Genes donor = new Genes();
+        for (int step = 0; step < 2000; ++step) {
+            final int input = rnd.nextInt(12);
+            final int output = 4 + rnd.nextInt(8);
+            final boolean enabled = rnd.nextBoolean();
+            switch (rnd.nextInt(3)) {
+            case 0:
+                genes.insert(input, output, 1.0, enabled, rnd.nextInt(500));
+                break;
+            case 1:
+                if (genes.isEmpty())
+                    break;
+                donor.add(input, output, 1.0, enabled, step);
+                genes.set(rnd.nextInt(genes.size()), donor,
+                        donor.size() - 1);
+                break;
+            default:
+                if (!genes.isEmpty())
+                    genes.setEnabled(rnd.nextInt(genes.size()), enabled);
+            }
+            verify(genes);
+        }
+    }
+
+    @Test
+    public void setReplacesLinkAndNeurons() {
+        final Genes genes = new Genes();
+        genes.add(0, 5, 0.5, true, 10);
+        genes.add(5, 6, 0.5, true, 11);
+        final Genes donor = new Genes();
+        donor.add(1, 7, 0.5, false, 11);
+        genes.set(1, donor, 0);
+        assertFalse(genes.contains(5, 6));
+        assertTrue(genes.contains(1, 7));
+        assertEquals(2, genes.hiddenCount());
+        assertEquals(1, genes.count(false));
+        assertEquals(1, genes.gene(false, 0));
+    }
+
+    private void verify(final Genes genes) {
+        final Set<Long> links = new HashSet<>();
+        final Set<Integer> hidden = new HashSet<>();
+        int enabled = 0;
+        for (int i = 0; i < genes.size(); ++i) {
+            links.add((long) genes.input(i) << 32 | genes.output(i));
+            for (final int neuron : new int[] { genes.input(i),
+                    genes.output(i) })
+                if (neuron >= 5)
+                    hidden.add(neuron);
+            if (genes.enabled(i))
+                ++enabled;
+        }
+        for (int input = 0; input < 12; ++input)
+            for (int output = 4; output < 12; ++output)
+                assertEquals(links.contains((long) input << 32 | output),
+                        genes.contains(input, output));
+        final Set<Integer> listed = new HashSet<>();
+        for (int k = 0; k < genes.hiddenCount(); ++k)
+            listed.add(genes.hidden(k));
+        assertEquals(hidden, listed);
+        assertEquals(hidden.size(), genes.hiddenCount());
+        assertEquals(enabled, genes.count(true));
+        assertEquals(genes.size() - enabled, genes.count(false));
+        final Set<Integer> seen = new HashSet<>();
+        for (final boolean state : new boolean[] { true, false })
+            for (int k = 0; k < genes.count(state); ++k) {
+                final int gene = genes.gene(state, k);
+                assertEquals(state, genes.enabled(gene));
+                assertEquals(k, genes.position(gene));
+                assertTrue(seen.add(gene));
+            }
+    }
+}
@@ -0,0 +1,91 @@
+package fr.neatmonster.labs.neat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class GenomeTest {
+    static List<Genome> genomes(final Pool pool) {
+        final List<Genome> genomes = new ArrayList<Genome>();
+        for (final Species species : pool.species)
+            genomes.addAll(species.genomes);
+        return genomes;
+    }
+
+    private static Map<Integer, Double> weights(final Genome genome) {
+        final Map<Integer, Double> weights = new HashMap<Integer, Double>();
+        for (int i = 0; i < genome.genes.size(); ++i)
+            weights.put(genome.genes.innovation(i), genome.genes.weight(i));
+        return weights;
+    }
+
+    static Pool evolve(final Pool pool, final int generations) {
+        final Random fitness = new Random(1L);
+        pool.initializePool();
+        for (int generation = 0; generation < generations; ++generation) {
+            for (final Genome genome : genomes(pool)) {
+                assertTrue(genome.genes.isSorted(), "generation " + generation);
+                genome.fitness = fitness.nextInt(1000);
+            }
+            pool.newGeneration();
+        }
+        for (final Genome genome : genomes(pool))
+            assertTrue(genome.genes.isSorted());
+        return pool;
+    }
+
+    @Test
+    public void disjointMatchesSetCount() {
+        final List<Genome> genomes = genomes(
+                evolve(new Pool(300, new Random(42L)), 40));
+        final Random rnd = new Random(7L);
+        for (int k = 0; k < 2000; ++k) {
+            final Genome a = genomes.get(rnd.nextInt(genomes.size()));
+            final Genome b = genomes.get(rnd.nextInt(genomes.size()));
+            final Map<Integer, Double> as = weights(a);
+            final Map<Integer, Double> bs = weights(b);
+            final Set<Integer> shared = new HashSet<Integer>(as.keySet());
+            shared.retainAll(bs.keySet());
+
+            final double disjoint = as.size() - shared.size();
+            assertEquals(disjoint / Math.max(as.size(), bs.size()),
+                    a.disjoint(b), 1e-12);
+            if (shared.isEmpty())
+                continue;
+            double sum = 0.0;
+            for (final int innovation : shared)
+                sum += Math.abs(as.get(innovation) - bs.get(innovation));
+            assertEquals(sum / shared.size(), a.weights(b), 1e-9);
+        }
+    }
+
+    @Test
+    public void evolvedGenesStaySorted() {
+        evolve(new Pool(300, new Random(42L)), 40);
+    }
+
+    @Test
+    public void insertKeepsInnovationOrder() {
+        final Genes genes = new Genes();
+        genes.insert(0, 5, 0.5, true, 10);
+        genes.insert(1, 5, 0.5, false, 30);
+        genes.insert(2, 6, 0.5, true, 20);
+        genes.insert(6, 5, 0.5, true, 5);
+        assertTrue(genes.isSorted());
+        assertEquals(4, genes.size());
+        assertEquals(6, genes.input(0));
+        assertEquals(2, genes.input(2));
+        assertTrue(genes.contains(2, 6));
+        assertEquals(3, genes.count(true));
+        assertEquals(3, genes.gene(false, 0));
+    }
+}
@@ -0,0 +1,87 @@
+package fr.neatmonster.labs.neat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class PoolTest {
+    private static List<String> describe(final Pool pool) {
+        final List<String> genomes = new ArrayList<String>();
+        for (final Species species : pool.species) {
+            genomes.add("species " + species.genomes.size());
+            for (final Genome genome : species.genomes) {
+                final StringBuilder genes = new StringBuilder();
+                for (int i = 0; i < genome.genes.size(); ++i)
+                    genes.append(genome.genes.innovation(i)).append(':')
+                            .append(genome.genes.input(i)).append('>')
+                            .append(genome.genes.output(i)).append('=')
+                            .append(genome.genes.weight(i))
+                            .append(genome.genes.enabled(i) ? ' ' : '-');
+                genomes.add(genes.toString());
+            }
+        }
+        return genomes;
+    }
+
+    private static Pool evolve(final int breeders) {
+        final Pool pool = new Pool(300, new Random(42L));
+        pool.setParallelism(breeders);
+        return GenomeTest.evolve(pool, 30);
+    }
+
+    @Test
+    public void breedersAreDeterministic() {
+        final Pool expected = evolve(1);
+        for (final int breeders : new int[] { 2, 4 }) {
+            final Pool actual = evolve(breeders);
+            assertEquals(expected.innovation, actual.innovation);
+            assertEquals(expected.neuron, actual.neuron);
+            assertEquals(describe(expected), describe(actual));
+        }
+    }
+
+    @Test
+    public void serialBreedingDiffersFromParallel() {
+        final Pool start = new Pool(300, new Random(42L));
+        start.setParallelism(1);
+        start.initializePool();
+        final Pool serialStart = new Pool(300, new Random(42L));
+        serialStart.initializePool();
+        assertEquals(describe(serialStart), describe(start));
+
+        final Pool serial = evolve(0);
+        assertEquals(describe(serial), describe(evolve(0)));
+        final Pool parallel = evolve(1);
+        assertEquals(GenomeTest.genomes(serial).size(),
+                GenomeTest.genomes(parallel).size());
+        assertNotEquals(describe(serial), describe(parallel));
+    }
+
+    @Test
+    public void speciesStayWithinCap() {
+        for (final int breeders : new int[] { 0, 2 }) {
+            final Pool pool = new Pool(2000, new Random(42L));
+            pool.maxSpecies = 16;
+            pool.setParallelism(breeders);
+            pool.initializePool();
+            final Random fitness = new Random(1L);
+            for (int generation = 0; generation < 10; ++generation) {
+                assertTrue(pool.species.size() <= 16);
+                int genomes = 0;
+                for (final Species species : pool.species)
+                    for (final Genome genome : species.genomes) {
+                        genome.fitness = fitness.nextInt(1000);
+                        ++genomes;
+                    }
+                assertEquals(2000, genomes);
+                pool.newGeneration();
+            }
+        }
+    }
+}